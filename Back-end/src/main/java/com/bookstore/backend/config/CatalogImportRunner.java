@@ -0,0 +1,74 @@
+package com.bookstore.backend.config;
+
+import com.bookstore.backend.dto.ImportReport;
+import com.bookstore.backend.service.CatalogImportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+// Imports a catalog file at startup, e.g.
+//   java -jar backend.jar --import-catalog=books.csv.gz --import-exit
+// Format comes from --import-format or the file extension (.csv, otherwise NDJSON).
+// With --import-exit the application stops after the import (exit code 1 if the file was unreadable).
+@Component
+public class CatalogImportRunner implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogImportRunner.class);
+
+    @Autowired
+    private CatalogImportService catalogImportService;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!args.containsOption("import-catalog")) {
+            return;
+        }
+
+        String file = args.getOptionValues("import-catalog").get(0);
+        String fileName = file.toLowerCase();
+        boolean gzipped = fileName.endsWith(".gz");
+        if (gzipped) {
+            fileName = fileName.substring(0, fileName.length() - 3);
+        }
+        String format = args.containsOption("import-format") ? args.getOptionValues("import-format").get(0)
+                : fileName.endsWith(".csv") ? CatalogImportService.FORMAT_CSV : CatalogImportService.FORMAT_NDJSON;
+
+        boolean succeeded = false;
+        try (InputStream in = open(Path.of(file), gzipped)) {
+            ImportReport report = catalogImportService.importCatalog(in, format);
+            for (ImportReport.Reject reject : report.getRejects()) {
+                logger.warn("Rejected row {}: {}", reject.getRow(), reject.getReason());
+            }
+            if (report.getError() != null) {
+                logger.error("Catalog import stopped early: {}", report.getError());
+            }
+            succeeded = report.getError() == null;
+        } catch (Exception e) {
+            logger.error("Catalog import of {} failed", file, e);
+        }
+
+        if (args.containsOption("import-exit")) {
+            int exitCode = succeeded ? 0 : 1;
+            System.exit(SpringApplication.exit(applicationContext, () -> exitCode));
+        }
+    }
+
+    private static InputStream open(Path path, boolean gzipped) throws Exception {
+        InputStream in = new BufferedInputStream(Files.newInputStream(path), 64 * 1024);
+        return gzipped ? new GZIPInputStream(in, 64 * 1024) : in;
+    }
+}
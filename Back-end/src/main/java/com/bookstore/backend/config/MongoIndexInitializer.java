@@ -0,0 +1,313 @@
+package com.bookstore.backend.config;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Creates the indexes the repository finders rely on, then checks each finder's query plan.
+// Indexes are declared here rather than with @Indexed so a missing or unreachable database
+// only produces log errors instead of failing startup.
+@Component
+public class MongoIndexInitializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(MongoIndexInitializer.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${mongo.indexes.verify-plans:true}")
+    private boolean verifyPlans;
+
+    @Value("${startup.migrations.enabled:true}")
+    private boolean startupMigrations;
+
+    // Runs before the other startup listeners so their migrations already have indexes
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void initializeIndexes() {
+        if (!startupMigrations) {
+            return;
+        }
+        try {
+            mongoTemplate.executeCommand(new Document("ping", 1));
+        } catch (Exception e) {
+            logger.error("Skipping index initialization, MongoDB is not reachable: {}", e.getMessage());
+            return;
+        }
+
+        int failed = ensureIndexes();
+        int collectionScans = verifyPlans ? findCollectionScans().size() : 0;
+        logger.info("Mongo indexes checked: {} failed, {} finders still scanning collections", failed, collectionScans);
+    }
+
+    // Returns the number of indexes that could not be created
+    int ensureIndexes() {
+        int failed = 0;
+        for (IndexSpec spec : indexSpecs()) {
+            if (!ensureIndex(spec)) {
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    private List<IndexSpec> indexSpecs() {
+        Criteria liveReviews = Criteria.where("isDeleted").is(false);
+
+        List<IndexSpec> specs = new ArrayList<>();
+
+        // UserRepository.findByEmail; one account per email
+        specs.add(new IndexSpec("users", new Index().on("email", Sort.Direction.ASC)
+                .unique().named("email_unique")));
+
+        // OrderRepository.findByUserId
+        specs.add(new IndexSpec("orders", new Index().on("userId", Sort.Direction.ASC)
+                .named("userId")));
+        // ExportService order and sales exports (date range, oldest first)
+        specs.add(new IndexSpec("orders", new Index().on("orderDate", Sort.Direction.ASC)
+                .named("orderDate")));
+
+        // PaymentRepository.findByOrderId / findByStripePaymentIntentId
+        specs.add(new IndexSpec("payments", new Index().on("orderId", Sort.Direction.ASC)
+                .named("orderId")));
+        specs.add(new IndexSpec("payments", new Index().on("stripePaymentIntentId", Sort.Direction.ASC)
+                .named("stripePaymentIntentId")));
+
+        // ReviewRepository.findByBook_idAndUserId / findByBook_idAndIsDeletedFalse;
+        // also enforces one live review per user and book
+        specs.add(new IndexSpec("reviews", new Index().on("book_id", Sort.Direction.ASC).on("userId", Sort.Direction.ASC)
+                .unique().partial(PartialIndexFilter.of(liveReviews)).named("book_user_live_unique")));
+        // ReviewRepository.findByUserId
+        specs.add(new IndexSpec("reviews", new Index().on("userId", Sort.Direction.ASC)
+                .named("userId")));
+        // ReviewService.getReviewFeed, "newest" and "helpful"
+        specs.add(new IndexSpec("reviews", new Index().on("book_id", Sort.Direction.ASC)
+                .on("createdAt", Sort.Direction.DESC).on("_id", Sort.Direction.DESC)
+                .partial(PartialIndexFilter.of(liveReviews)).named("book_live_newest")));
+        specs.add(new IndexSpec("reviews", new Index().on("book_id", Sort.Direction.ASC)
+                .on("helpfulCount", Sort.Direction.DESC).on("_id", Sort.Direction.DESC)
+                .partial(PartialIndexFilter.of(liveReviews)).named("book_live_helpful")));
+
+        // ConversationRepository.findByStatus...OrderByLastMessageAtDesc and ConversationService.getInbox
+        specs.add(new IndexSpec("conversations", new Index().on("status", Sort.Direction.ASC)
+                .on("lastMessageAt", Sort.Direction.DESC).on("_id", Sort.Direction.DESC)
+                .named("status_lastMessageAt_id")));
+        specs.add(new IndexSpec("conversations", new Index().on("lastMessageAt", Sort.Direction.DESC)
+                .on("_id", Sort.Direction.DESC).named("lastMessageAt_id")));
+        // ConversationRepository.findByUserEmailOrderByLastMessageAtDesc / findActiveConversationsByUser
+        specs.add(new IndexSpec("conversations", new Index().on("userEmail", Sort.Direction.ASC)
+                .on("lastMessageAt", Sort.Direction.DESC).named("userEmail_lastMessageAt")));
+        // ConversationRepository.findConversationsWithUnread{User,Admin}Messages; only unread conversations are indexed
+        specs.add(new IndexSpec("conversations", new Index().on("lastMessageAt", Sort.Direction.DESC)
+                .partial(PartialIndexFilter.of(Criteria.where("unreadByAdmin").gt(0))).named("unreadByAdmin_lastMessageAt")));
+        specs.add(new IndexSpec("conversations", new Index().on("lastMessageAt", Sort.Direction.DESC)
+                .partial(PartialIndexFilter.of(Criteria.where("unreadByUser").gt(0))).named("unreadByUser_lastMessageAt")));
+        // ConversationService message buckets by conversation (delete, search and read-marking)
+        specs.add(new IndexSpec("conversation_messages", new Index().on("conversationId", Sort.Direction.ASC)
+                .on("bucketNo", Sort.Direction.DESC).named("conversationId_bucketNo")));
+
+        // BookService.findPage sort keys (id tie-breaker)
+        specs.add(new IndexSpec("books", new Index().on("price", Sort.Direction.ASC).on("_id", Sort.Direction.ASC)
+                .named("price_id")));
+        specs.add(new IndexSpec("books", new Index().on("rating", Sort.Direction.ASC).on("_id", Sort.Direction.ASC)
+                .named("rating_id")));
+        specs.add(new IndexSpec("books", new Index().on("publishedDate", Sort.Direction.ASC).on("_id", Sort.Direction.ASC)
+                .named("publishedDate_id")));
+        // BookRepository.findByGenreAndNotId / findByAuthorAndNotId
+        specs.add(new IndexSpec("books", new Index().on("genre", Sort.Direction.ASC).named("genre")));
+        specs.add(new IndexSpec("books", new Index().on("author", Sort.Direction.ASC).named("author")));
+        // CatalogImportService upsert keys; one book per isbn, books without one are not indexed
+        specs.add(new IndexSpec("books", new Index().on("isbn", Sort.Direction.ASC).unique()
+                .partial(PartialIndexFilter.of(Criteria.where("isbn").exists(true))).named("isbn_unique")));
+        specs.add(new IndexSpec("books", new Index().on("title", Sort.Direction.ASC).on("author", Sort.Direction.ASC)
+                .named("title_author")));
+
+        // InventoryService low/out/in-stock views
+        specs.add(new IndexSpec("books", new Index().on("stockQuantity", Sort.Direction.ASC).named("stockQuantity")));
+        specs.add(new IndexSpec("books", new Index().on("stockStatus", Sort.Direction.ASC).named("stockStatus")));
+
+        // StockReservationService.expireReservations sweep, StockReservationRepository.findByUserIdAndStatus
+        // and the per-user reservation caps
+        specs.add(new IndexSpec("stock_reservations", new Index().on("status", Sort.Direction.ASC)
+                .on("expiresAt", Sort.Direction.ASC).named("status_expiresAt")));
+        specs.add(new IndexSpec("stock_reservations", new Index().on("userId", Sort.Direction.ASC)
+                .on("status", Sort.Direction.ASC).named("userId_status")));
+
+        // SalesRollupRepository.findByType / findByTypeOrderByKeyDesc and SalesRollupService.getTopBooks
+        specs.add(new IndexSpec("sales_rollups", new Index().on("type", Sort.Direction.ASC)
+                .on("key", Sort.Direction.DESC).named("type_key")));
+        specs.add(new IndexSpec("sales_rollups", new Index().on("type", Sort.Direction.ASC)
+                .on("itemsSold", Sort.Direction.DESC).on("key", Sort.Direction.ASC).named("type_itemsSold_key")));
+
+        return specs;
+    }
+
+    // Creates the index if needed and confirms it exists; a conflicting definition or
+    // duplicate data (for unique indexes) is logged and left for an operator to fix
+    private boolean ensureIndex(IndexSpec spec) {
+        String name = spec.index.getIndexOptions().getString("name");
+        try {
+            mongoTemplate.indexOps(spec.collection).createIndex(spec.index);
+
+            for (IndexInfo info : mongoTemplate.indexOps(spec.collection).getIndexInfo()) {
+                if (info.getName().equals(name)) {
+                    return true;
+                }
+            }
+            logger.error("Index {}.{} was not found after creation", spec.collection, name);
+        } catch (Exception e) {
+            logger.error("Failed to create index {}.{}: {}", spec.collection, name, e.getMessage());
+        }
+        return false;
+    }
+
+    private List<PlanCheck> planChecks() {
+        List<PlanCheck> checks = new ArrayList<>();
+        checks.add(new PlanCheck("UserRepository.findByEmail", "users",
+                new Document("email", "explain@example.com"), null));
+        checks.add(new PlanCheck("OrderRepository.findByUserId", "orders",
+                new Document("userId", "explain"), null));
+        checks.add(new PlanCheck("ExportService.exportOrders", "orders",
+                new Document("orderDate", new Document("$gte", new Date(0))), new Document("orderDate", 1)));
+        checks.add(new PlanCheck("PaymentRepository.findByOrderId", "payments",
+                new Document("orderId", "explain"), null));
+        checks.add(new PlanCheck("PaymentRepository.findByStripePaymentIntentId", "payments",
+                new Document("stripePaymentIntentId", "explain"), null));
+        checks.add(new PlanCheck("ReviewRepository.findByBook_idAndUserId", "reviews",
+                new Document("book_id", "explain").append("userId", "explain").append("isDeleted", false), null));
+        checks.add(new PlanCheck("ReviewRepository.findByBook_idAndIsDeletedFalse", "reviews",
+                new Document("book_id", "explain").append("isDeleted", false), null));
+        checks.add(new PlanCheck("ReviewRepository.findByUserId", "reviews",
+                new Document("userId", "explain"), null));
+        checks.add(new PlanCheck("ReviewService.getReviewFeed(newest)", "reviews",
+                new Document("book_id", "explain").append("isDeleted", false),
+                new Document("createdAt", -1).append("_id", -1)));
+        checks.add(new PlanCheck("ReviewService.getReviewFeed(helpful)", "reviews",
+                new Document("book_id", "explain").append("isDeleted", false),
+                new Document("helpfulCount", -1).append("_id", -1)));
+        checks.add(new PlanCheck("ConversationRepository.findByStatusOrderByLastMessageAtDesc", "conversations",
+                new Document("status", "ACTIVE"), new Document("lastMessageAt", -1)));
+        checks.add(new PlanCheck("ConversationRepository.findByStatusAndLastMessageByOrderByLastMessageAtDesc",
+                "conversations", new Document("status", "ACTIVE").append("lastMessageBy", "USER"),
+                new Document("lastMessageAt", -1)));
+        checks.add(new PlanCheck("ConversationRepository.findByUserEmailOrderByLastMessageAtDesc", "conversations",
+                new Document("userEmail", "explain@example.com"), new Document("lastMessageAt", -1)));
+        checks.add(new PlanCheck("ConversationService.getInbox", "conversations",
+                new Document(), new Document("lastMessageAt", -1).append("_id", -1)));
+        checks.add(new PlanCheck("ConversationService.getInbox(status)", "conversations",
+                new Document("status", "ACTIVE"), new Document("lastMessageAt", -1).append("_id", -1)));
+        checks.add(new PlanCheck("ConversationRepository.findConversationsWithUnreadUserMessages", "conversations",
+                new Document("unreadByAdmin", new Document("$gt", 0)), new Document("lastMessageAt", -1)));
+        checks.add(new PlanCheck("ConversationRepository.findConversationsWithUnreadAdminMessages", "conversations",
+                new Document("unreadByUser", new Document("$gt", 0)), new Document("lastMessageAt", -1)));
+        checks.add(new PlanCheck("BookRepository.findByGenreAndNotId", "books",
+                new Document("genre", "explain"), null));
+        checks.add(new PlanCheck("BookRepository.findByAuthorAndNotId", "books",
+                new Document("author", "explain"), null));
+        checks.add(new PlanCheck("CatalogImportService.importBatch(isbn)", "books",
+                new Document("isbn", "explain"), null));
+        checks.add(new PlanCheck("CatalogImportService.importBatch(title, author)", "books",
+                new Document("title", "explain").append("author", "explain"), null));
+        checks.add(new PlanCheck("BookService.findPage(price)", "books",
+                new Document(), new Document("price", 1).append("_id", 1)));
+        checks.add(new PlanCheck("BookRepository.findInventoryByStockQuantityBetween", "books",
+                new Document("stockQuantity", new Document("$gte", 1).append("$lte", 5)), new Document("stockQuantity", 1)));
+        checks.add(new PlanCheck("BookRepository.findOutOfStockInventory", "books",
+                new Document("$or", List.of(new Document("stockQuantity", new Document("$lte", 0)),
+                        new Document("stockQuantity", null), new Document("stockStatus", "OUT_OF_STOCK"))), null));
+        checks.add(new PlanCheck("StockReservationService.expireReservations", "stock_reservations",
+                new Document("status", "ACTIVE").append("expiresAt", new Document("$lte", new Date())),
+                new Document("expiresAt", 1)));
+        checks.add(new PlanCheck("SalesRollupRepository.findByTypeOrderByKeyDesc", "sales_rollups",
+                new Document("type", "MONTH"), new Document("key", -1)));
+        checks.add(new PlanCheck("SalesRollupService.getTopBooks", "sales_rollups",
+                new Document("type", "BOOK"), new Document("itemsSold", -1).append("key", 1)));
+        return checks;
+    }
+
+    // Explains each finder's query and returns (and warns about) the ones that would scan the whole collection
+    List<String> findCollectionScans() {
+        List<String> collectionScans = new ArrayList<>();
+        for (PlanCheck check : planChecks()) {
+            try {
+                Document explain = mongoTemplate.getCollection(check.collection)
+                        .find(check.filter)
+                        .sort(check.sort)
+                        .explain();
+
+                Document queryPlanner = explain.get("queryPlanner", Document.class);
+                Set<String> stages = new HashSet<>();
+                collectStages(queryPlanner != null ? queryPlanner.get("winningPlan") : null, stages);
+
+                if (stages.contains("COLLSCAN")) {
+                    collectionScans.add(check.finder);
+                    logger.warn("{} runs as a COLLSCAN on {}", check.finder, check.collection);
+                }
+            } catch (Exception e) {
+                logger.error("Failed to explain {}: {}", check.finder, e.getMessage());
+            }
+        }
+        return collectionScans;
+    }
+
+    // Plans nest stages under inputStage / inputStages / queryPlan depending on the server version
+    private static void collectStages(Object node, Set<String> stages) {
+        if (node instanceof Document) {
+            Document document = (Document) node;
+            Object stage = document.get("stage");
+            if (stage instanceof String) {
+                stages.add((String) stage);
+            }
+            for (Object value : document.values()) {
+                collectStages(value, stages);
+            }
+        } else if (node instanceof List) {
+            for (Object value : (List<?>) node) {
+                collectStages(value, stages);
+            }
+        }
+    }
+
+    private static class IndexSpec {
+        private final String collection;
+        private final Index index;
+
+        private IndexSpec(String collection, Index index) {
+            this.collection = collection;
+            this.index = index;
+        }
+    }
+
+    private static class PlanCheck {
+        private final String finder;
+        private final String collection;
+        private final Document filter;
+        private final Document sort;
+
+        private PlanCheck(String finder, String collection, Document filter, Document sort) {
+            this.finder = finder;
+            this.collection = collection;
+            this.filter = filter;
+            this.sort = sort;
+        }
+    }
+}
@@ -1,11 +1,20 @@
 package com.bookstore.backend.controller;
 
+import com.bookstore.backend.dto.BookSearchResponse;
+import com.bookstore.backend.dto.BookUpdateRequest;
+import com.bookstore.backend.dto.BulkUpdateResult;
+import com.bookstore.backend.dto.CursorPage;
+import com.bookstore.backend.dto.ImportReport;
 import com.bookstore.backend.model.Book;
+import com.bookstore.backend.service.BookBulkUpdateService;
 import com.bookstore.backend.service.BookService;
+import com.bookstore.backend.service.CatalogImportService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -15,6 +24,12 @@ public class BookController {
     @Autowired
     private BookService bookService;
 
+    @Autowired
+    private BookBulkUpdateService bookBulkUpdateService;
+
+    @Autowired
+    private CatalogImportService catalogImportService;
+
     // 1. CREATE
     @PostMapping
     public ResponseEntity<Book> addBook(@RequestBody Book book) {
@@ -32,6 +47,39 @@ public class BookController {
         return bookService.findAll();
     }
 
+    // 2b. READ PAGE (cursor-based)
+    // GET: /api/books?pageSize=20&sort=price&direction=asc&cursor=...
+    // description is left out unless includeDescription=true
+    @GetMapping(params = "pageSize")
+    public ResponseEntity<CursorPage<Book>> getBooksPage(
+            @RequestParam int pageSize,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(defaultValue = "asc") String direction,
+            @RequestParam(defaultValue = "false") boolean includeDescription) {
+        try {
+            CursorPage<Book> page = bookService.findPage(pageSize, cursor, sort,
+                    Sort.Direction.fromString(direction), includeDescription);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+    }
+
+    // 2c. SEARCH (title, author, genre, publisher, description)
+    // GET: /api/books/search?q=tolkien&page=0&size=20
+    @GetMapping("/search")
+    public ResponseEntity<BookSearchResponse> searchBooks(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        try {
+            return ResponseEntity.ok(bookService.search(q, page, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+    }
+
     // 3. READ ONE
     @GetMapping("/{id}")
     public ResponseEntity<Book> getBookById(@PathVariable String id) {
@@ -42,7 +90,7 @@ public class BookController {
 
     // 4. UPDATE
     @PutMapping("/{id}")
-    public ResponseEntity<Book> updateBook(@PathVariable String id, @RequestBody Book bookDetails) {
+    public ResponseEntity<Book> updateBook(@PathVariable String id, @RequestBody BookUpdateRequest bookDetails) {
         try {
             Book updatedBook = bookService.update(id, bookDetails);
             return ResponseEntity.ok(updatedBook);
@@ -53,6 +101,37 @@ public class BookController {
         }
     }
 
+    // 4b. BULK UPDATE (supplier feeds: prices, stock and catalog fields)
+    // Body: JSON array or NDJSON of {"bookId": "...", "price": 9.99, ...}, streamed and applied in chunks
+    @PutMapping("/bulk")
+    public ResponseEntity<?> bulkUpdateBooks(InputStream body) {
+        try {
+            BulkUpdateResult result = bookBulkUpdateService.updateBooks(body);
+            return ResponseEntity.ok(result);
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(java.util.Map.of("message", "Invalid bulk book update: " + e.getMessage()));
+        }
+    }
+
+    // 4c. CATALOG IMPORT (creates or updates books, matched on isbn or title + author)
+    // Body: CSV with a header row (format=csv), or NDJSON / JSON array (format=ndjson)
+    @PostMapping("/import")
+    public ResponseEntity<?> importCatalog(
+            @RequestParam(defaultValue = CatalogImportService.FORMAT_NDJSON) String format,
+            InputStream body) {
+        try {
+            ImportReport report = catalogImportService.importCatalog(body, format);
+            return ResponseEntity.ok(report);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(java.util.Map.of("message", e.getMessage()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(java.util.Map.of("message", "Catalog import failed: " + e.getMessage()));
+        }
+    }
+
     // 5. DELETE
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteBook(@PathVariable String id) {
@@ -1,13 +1,22 @@
 package com.bookstore.backend.controller;
 
+import com.bookstore.backend.dto.ConversationSummary;
+import com.bookstore.backend.dto.CursorPage;
 import com.bookstore.backend.model.Conversation;
+import com.bookstore.backend.model.ConversationStats;
 import com.bookstore.backend.dto.ConversationRequest;
 import com.bookstore.backend.dto.MessageRequest;
 import com.bookstore.backend.service.ConversationService;
+import com.bookstore.backend.service.ConversationStreamService;
+import com.bookstore.backend.util.AuthenticatedUser;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import jakarta.validation.Valid;
 import java.util.List;
@@ -19,6 +28,8 @@ public class ConversationController {
 
     private final ConversationService conversationService;
 
+    private final ConversationStreamService conversationStreamService;
+
     @PostMapping
     public ResponseEntity<Conversation> createConversation(@Valid @RequestBody ConversationRequest request) {
         Conversation createdConversation = conversationService.createConversation(request);
@@ -31,6 +42,46 @@ public class ConversationController {
         return ResponseEntity.ok(conversationService.getAllConversations());
     }
 
+    // Admin inbox, newest activity first: /inbox?pageSize=20&status=ACTIVE&cursor=...
+    // Rows carry the header fields only; open a conversation for its messages.
+    @GetMapping("/inbox")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getInbox(
+            @RequestParam(defaultValue = "20") int pageSize,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String cursor) {
+        try {
+            CursorPage<ConversationSummary> page = conversationService.getInbox(status, cursor, pageSize);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(java.util.Map.of("message", e.getMessage()));
+        }
+    }
+
+    // Live updates as server-sent events (MESSAGE_ADDED, MESSAGES_READ, STATUS_CHANGED, RESYNC),
+    // replacing polling of /unread/* and /{id}. Admins get every conversation, users their own;
+    // pass conversationId to follow just one. On reconnect the browser's Last-Event-ID header
+    // replays what was missed (or sends RESYNC).
+    @GetMapping("/stream")
+    public ResponseEntity<?> streamUpdates(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            @RequestParam(required = false) String conversationId,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        if (currentUser == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(java.util.Map.of("message", "Authentication required"));
+        }
+        try {
+            SseEmitter emitter = conversationStreamService.subscribe(currentUser.getEmail(), currentUser.isAdmin(),
+                    conversationId, lastEventId);
+            return ResponseEntity.ok(emitter);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .body(java.util.Map.of("message", e.getMessage()));
+        }
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Conversation> getConversationById(@PathVariable String id) {
         try {
@@ -41,6 +92,22 @@ public class ConversationController {
         }
     }
 
+    // Older messages, newest first: pass nextCursor back as cursor to keep paging
+    @GetMapping("/{id}/messages")
+    public ResponseEntity<?> getMessages(
+            @PathVariable String id,
+            @RequestParam(defaultValue = "50") int pageSize,
+            @RequestParam(required = false) String cursor) {
+        try {
+            CursorPage<Conversation.Message> page = conversationService.getMessages(id, cursor, pageSize);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(java.util.Map.of("message", e.getMessage()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
     @GetMapping("/status/{status}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<List<Conversation>> getConversationsByStatus(@PathVariable String status) {
@@ -59,6 +126,13 @@ public class ConversationController {
         return ResponseEntity.ok(conversationService.getConversationsWithUnreadUserMessages());
     }
 
+    // Store-wide unread totals for the admin badge, read from one counters document
+    @GetMapping("/unread/counts")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ConversationStats> getUnreadCounts() {
+        return ResponseEntity.ok(conversationService.getUnreadCounts());
+    }
+
     @GetMapping("/unread/admin")
     public ResponseEntity<List<Conversation>> getConversationsWithUnreadAdminMessages() {
         return ResponseEntity.ok(conversationService.getConversationsWithUnreadAdminMessages());
@@ -87,13 +161,14 @@ public class ConversationController {
         }
     }
 
+    // Returns {"markedRead": n}, the number of the other side's messages that were unread
     @PutMapping("/{id}/read")
-    public ResponseEntity<Conversation> markMessagesAsRead(
+    public ResponseEntity<?> markMessagesAsRead(
             @PathVariable String id,
             @RequestParam String sender) {
         try {
-            Conversation updatedConversation = conversationService.markMessagesAsRead(id, sender);
-            return ResponseEntity.ok(updatedConversation);
+            int markedRead = conversationService.markMessagesAsRead(id, sender);
+            return ResponseEntity.ok(java.util.Map.of("markedRead", markedRead));
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
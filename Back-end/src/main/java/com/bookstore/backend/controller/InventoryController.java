@@ -1,15 +1,19 @@
 package com.bookstore.backend.controller;
 
+import com.bookstore.backend.dto.BulkUpdateResult;
 import com.bookstore.backend.dto.InventoryResponse;
 import com.bookstore.backend.dto.StockUpdateRequest;
 import com.bookstore.backend.model.Book;
+import com.bookstore.backend.service.BookBulkUpdateService;
 import com.bookstore.backend.service.InventoryService;
 import com.bookstore.backend.service.LowStockAlertService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.InputStream;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -24,6 +28,9 @@ public class InventoryController {
     @Autowired
     private LowStockAlertService lowStockAlertService;
 
+    @Autowired
+    private BookBulkUpdateService bookBulkUpdateService;
+
     // Get all inventory with summary
     @GetMapping
     public ResponseEntity<InventoryResponse> getAllInventory() {
@@ -83,6 +90,19 @@ public class InventoryController {
         return ResponseEntity.ok(convertToInventoryItem(updatedBook));
     }
 
+    // Bulk update stock quantities (supplier feeds)
+    // Body: JSON array or NDJSON of {"bookId": "...", "stockQuantity": 12}, streamed and applied in chunks
+    @PutMapping("/stock/bulk")
+    public ResponseEntity<?> bulkUpdateStock(InputStream body) {
+        try {
+            BulkUpdateResult result = bookBulkUpdateService.updateStock(body);
+            return ResponseEntity.ok(result);
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(java.util.Map.of("message", "Invalid bulk stock update: " + e.getMessage()));
+        }
+    }
+
     // Update stock status
     @PutMapping("/status/{bookId}")
     public ResponseEntity<InventoryResponse.BookInventoryItem> updateStockStatus(
@@ -1,13 +1,21 @@
 package com.bookstore.backend.controller;
 
 import com.bookstore.backend.dto.*;
+import com.bookstore.backend.service.ExportService;
 import com.bookstore.backend.service.ReportingService;
-import com.bookstore.backend.util.JwtUtil;
+import com.bookstore.backend.util.AuthenticatedUser;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -18,25 +26,16 @@ public class ReportingController {
     private ReportingService reportingService;
 
     @Autowired
-    private JwtUtil jwtUtil;
+    private ExportService exportService;
 
-    private boolean isAdmin(String authHeader) {
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            return false;
-        }
-        try {
-            String token = authHeader.substring(7);
-            String role = jwtUtil.extractClaim(token, claims -> claims.get("role", String.class));
-            return "ADMIN".equals(role);
-        } catch (Exception e) {
-            return false;
-        }
+    private boolean isAdmin(AuthenticatedUser currentUser) {
+        return currentUser != null && currentUser.isAdmin();
     }
 
     // 1. GET TOTAL SALES REPORT
     @GetMapping("/sales")
-    public ResponseEntity<?> getTotalSalesReport(@RequestHeader("Authorization") String authHeader) {
-        if (!isAdmin(authHeader)) {
+    public ResponseEntity<?> getTotalSalesReport(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        if (!isAdmin(currentUser)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
                     .body(java.util.Map.of("message", "Access denied. Admin only."));
         }
@@ -52,9 +51,9 @@ public class ReportingController {
     // 2. GET TOP SELLING BOOKS
     @GetMapping("/top-books")
     public ResponseEntity<?> getTopSellingBooks(
-            @RequestHeader("Authorization") String authHeader,
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
             @RequestParam(defaultValue = "10") int limit) {
-        if (!isAdmin(authHeader)) {
+        if (!isAdmin(currentUser)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
                     .body(java.util.Map.of("message", "Access denied. Admin only."));
         }
@@ -69,8 +68,8 @@ public class ReportingController {
 
     // 3. GET MONTHLY REVENUE STATS
     @GetMapping("/monthly-revenue")
-    public ResponseEntity<?> getMonthlyRevenueStats(@RequestHeader("Authorization") String authHeader) {
-        if (!isAdmin(authHeader)) {
+    public ResponseEntity<?> getMonthlyRevenueStats(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        if (!isAdmin(currentUser)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
                     .body(java.util.Map.of("message", "Access denied. Admin only."));
         }
@@ -85,8 +84,8 @@ public class ReportingController {
 
     // 4. GET USER ACTIVITY LOGS
     @GetMapping("/user-activity")
-    public ResponseEntity<?> getUserActivityLogs(@RequestHeader("Authorization") String authHeader) {
-        if (!isAdmin(authHeader)) {
+    public ResponseEntity<?> getUserActivityLogs(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        if (!isAdmin(currentUser)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
                     .body(java.util.Map.of("message", "Access denied. Admin only."));
         }
@@ -98,7 +97,97 @@ public class ReportingController {
                     .body(java.util.Map.of("message", "Error generating user activity report: " + e.getMessage()));
         }
     }
-}
 
+    // 5. REBUILD SALES ROLLUPS (one-off backfill from existing orders)
+    @PostMapping("/rollups/rebuild")
+    public ResponseEntity<?> rebuildSalesRollups(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        if (!isAdmin(currentUser)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(java.util.Map.of("message", "Access denied. Admin only."));
+        }
+        try {
+            reportingService.rebuildSalesRollups();
+            return ResponseEntity.ok(java.util.Map.of("message", "Sales rollups rebuilt"));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(java.util.Map.of("message", "Error rebuilding sales rollups: " + e.getMessage()));
+        }
+    }
 
+    // 6. EXPORT ORDERS (streamed; CSV has one row per order line)
+    // GET /api/reports/export/orders?format=csv&from=2025-01-01&to=2025-12-31&status=DELIVERED&gzip=true
+    @GetMapping("/export/orders")
+    public ResponseEntity<?> exportOrders(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            @RequestParam(defaultValue = ExportService.FORMAT_CSV) String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String status,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        if (!isAdmin(currentUser)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(java.util.Map.of("message", "Access denied. Admin only."));
+        }
+        try {
+            String checkedFormat = exportService.checkFormat(format);
+            StreamingResponseBody body = out -> {
+                try {
+                    exportService.exportOrders(from, to, status, checkedFormat, gzip, out);
+                } catch (Exception e) {
+                    throw new java.io.IOException("Order export failed: " + e.getMessage(), e);
+                }
+            };
+            return exportResponse("orders", from, to, checkedFormat, gzip, body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(java.util.Map.of("message", e.getMessage()));
+        }
+    }
+
+    // 7. EXPORT SALES (streamed totals per day or per book)
+    // GET /api/reports/export/sales?groupBy=book&format=ndjson&from=2025-01-01&to=2025-12-31
+    @GetMapping("/export/sales")
+    public ResponseEntity<?> exportSales(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            @RequestParam(defaultValue = ExportService.SALES_BY_DAY) String groupBy,
+            @RequestParam(defaultValue = ExportService.FORMAT_CSV) String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        if (!isAdmin(currentUser)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(java.util.Map.of("message", "Access denied. Admin only."));
+        }
+        try {
+            String checkedFormat = exportService.checkFormat(format);
+            String checkedGroupBy = exportService.checkSalesGrouping(groupBy);
+            StreamingResponseBody body = out -> {
+                try {
+                    exportService.exportSales(from, to, checkedGroupBy, checkedFormat, gzip, out);
+                } catch (Exception e) {
+                    throw new java.io.IOException("Sales export failed: " + e.getMessage(), e);
+                }
+            };
+            return exportResponse("sales-by-" + checkedGroupBy, from, to, checkedFormat, gzip, body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(java.util.Map.of("message", e.getMessage()));
+        }
+    }
 
+    // Download headers, e.g. orders_2025-01-01_2025-12-31.csv.gz
+    private ResponseEntity<StreamingResponseBody> exportResponse(String name, LocalDate from, LocalDate to,
+            String format, boolean gzip, StreamingResponseBody body) {
+        String fileName = name + "_" + (from != null ? from : "start") + "_" + (to != null ? to : "now")
+                + "." + format + (gzip ? ".gz" : "");
+        MediaType contentType = gzip ? MediaType.parseMediaType("application/gzip")
+                : ExportService.FORMAT_CSV.equals(format) ? MediaType.parseMediaType("text/csv")
+                : MediaType.parseMediaType("application/x-ndjson");
+
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(body);
+    }
+}
@@ -0,0 +1,116 @@
+package com.bookstore.backend.controller;
+
+import com.bookstore.backend.dto.ReservationRequest;
+import com.bookstore.backend.dto.StockAvailability;
+import com.bookstore.backend.model.StockReservation;
+import com.bookstore.backend.service.StockReservationService;
+import com.bookstore.backend.util.AuthenticatedUser;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/reservations")
+public class ReservationController {
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    // 1. RESERVE (hold stock for a cart or checkout; pass reservationId on the order line to use it)
+    @PostMapping
+    public ResponseEntity<?> reserve(
+            @RequestBody ReservationRequest request,
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+
+        if (currentUser == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(java.util.Map.of("message", "Authentication required"));
+        }
+
+        try {
+            StockReservation reservation = stockReservationService.reserve(currentUser.getUserId(),
+                    request.getBookId(), request.getQuantity(), request.getTtlSeconds());
+            return ResponseEntity.status(HttpStatus.CREATED).body(reservation);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(java.util.Map.of("message", e.getMessage()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(java.util.Map.of("message", e.getMessage()));
+        }
+    }
+
+    // 2. READ MY ACTIVE RESERVATIONS
+    @GetMapping("/me")
+    public ResponseEntity<?> getMyReservations(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        if (currentUser == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(java.util.Map.of("message", "Authentication required"));
+        }
+
+        List<StockReservation> reservations = stockReservationService.findActiveByUser(currentUser.getUserId());
+        return ResponseEntity.ok(reservations);
+    }
+
+    // 3. READ ONE
+    @GetMapping("/{reservationId}")
+    public ResponseEntity<?> getReservation(
+            @PathVariable String reservationId,
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+
+        Optional<StockReservation> reservation = stockReservationService.findById(reservationId);
+        if (reservation.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (currentUser == null || (!currentUser.isAdmin()
+                && !reservation.get().getUserId().equals(currentUser.getUserId()))) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(java.util.Map.of("message", "Access denied"));
+        }
+        return ResponseEntity.ok(reservation.get());
+    }
+
+    // 4. RELEASE (give the held units back before the TTL runs out)
+    @DeleteMapping("/{reservationId}")
+    public ResponseEntity<?> release(
+            @PathVariable String reservationId,
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+
+        if (currentUser == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(java.util.Map.of("message", "Authentication required"));
+        }
+
+        try {
+            StockReservation reservation = stockReservationService.release(reservationId,
+                    currentUser.getUserId(), currentUser.isAdmin());
+            return ResponseEntity.ok(reservation);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(java.util.Map.of("message", e.getMessage()));
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(java.util.Map.of("message", e.getMessage()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(java.util.Map.of("message", e.getMessage()));
+        }
+    }
+
+    // 5. AVAILABLE TO SELL (stock minus active holds)
+    @GetMapping("/availability/{bookId}")
+    public ResponseEntity<?> getAvailability(@PathVariable String bookId) {
+        try {
+            StockAvailability availability = stockReservationService.getAvailability(bookId);
+            return ResponseEntity.ok(availability);
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(java.util.Map.of("message", e.getMessage()));
+        }
+    }
+}
@@ -1,12 +1,15 @@
 package com.bookstore.backend.controller;
 
+import com.bookstore.backend.dto.CursorPage;
+import com.bookstore.backend.dto.RatingSummary;
 import com.bookstore.backend.model.Review;
 import com.bookstore.backend.service.ReviewService;
-import com.bookstore.backend.util.JwtUtil;
+import com.bookstore.backend.util.AuthenticatedUser;
 import com.bookstore.backend.dto.ReviewRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -19,32 +22,13 @@ public class ReviewController {
     @Autowired
     private ReviewService reviewService;
 
-    @Autowired
-    private JwtUtil jwtUtil;
-
-    private String getUserIdFromToken(String authHeader) {
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            return null;
-        }
-        try {
-            String token = authHeader.substring(7);
-            return jwtUtil.extractClaim(token, claims -> claims.get("userId", String.class));
-        } catch (Exception e) {
-            return null;
-        }
+    // The caller comes from the principal set by JwtAuthenticationFilter; the token is not parsed again
+    private String getUserId(AuthenticatedUser currentUser) {
+        return currentUser != null ? currentUser.getUserId() : null;
     }
 
-    private boolean isAdmin(String authHeader) {
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            return false;
-        }
-        try {
-            String token = authHeader.substring(7);
-            String role = jwtUtil.extractClaim(token, claims -> claims.get("role", String.class));
-            return "ADMIN".equals(role);
-        } catch (Exception e) {
-            return false;
-        }
+    private boolean isAdmin(AuthenticatedUser currentUser) {
+        return currentUser != null && currentUser.isAdmin();
     }
 
     // 1. CREATE REVIEW
@@ -52,9 +36,9 @@ public class ReviewController {
     public ResponseEntity<?> createReview(
             @PathVariable String bookId,
             @RequestBody ReviewRequest request,
-            @RequestHeader("Authorization") String authHeader) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
         
-        String userId = getUserIdFromToken(authHeader);
+        String userId = getUserId(currentUser);
         if (userId == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(java.util.Map.of("message", "Authentication required"));
@@ -79,6 +63,33 @@ public class ReviewController {
         return ResponseEntity.ok(reviews);
     }
 
+    // 2b. GET REVIEW FEED BY BOOK (cursor-based)
+    // GET: /api/reviews/book/{bookId}?pageSize=10&sort=newest|helpful&cursor=...
+    @GetMapping(value = "/book/{bookId}", params = "pageSize")
+    public ResponseEntity<CursorPage<Review>> getReviewFeed(
+            @PathVariable String bookId,
+            @RequestParam int pageSize,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "newest") String sort) {
+        try {
+            return ResponseEntity.ok(reviewService.getReviewFeed(bookId, pageSize, cursor, sort));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+    }
+
+    // 2c. GET RATING SUMMARY (average, count and 1-5 star histogram)
+    @GetMapping("/book/{bookId}/summary")
+    public ResponseEntity<?> getRatingSummary(@PathVariable String bookId) {
+        try {
+            RatingSummary summary = reviewService.getRatingSummary(bookId);
+            return ResponseEntity.ok(summary);
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(java.util.Map.of("message", e.getMessage()));
+        }
+    }
+
     // 3. GET REVIEW BY ID
     @GetMapping("/{reviewId}")
     public ResponseEntity<Review> getReviewById(@PathVariable String reviewId) {
@@ -92,9 +103,9 @@ public class ReviewController {
     public ResponseEntity<?> updateReview(
             @PathVariable String reviewId,
             @RequestBody ReviewRequest request,
-            @RequestHeader("Authorization") String authHeader) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
         
-        String userId = getUserIdFromToken(authHeader);
+        String userId = getUserId(currentUser);
         if (userId == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(java.util.Map.of("message", "Authentication required"));
@@ -112,19 +123,43 @@ public class ReviewController {
         }
     }
 
+    // 4b. MARK REVIEW HELPFUL
+    @PostMapping("/{reviewId}/helpful")
+    public ResponseEntity<?> markHelpful(
+            @PathVariable String reviewId,
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+
+        String userId = getUserId(currentUser);
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(java.util.Map.of("message", "Authentication required"));
+        }
+
+        try {
+            Review review = reviewService.markHelpful(reviewId, userId);
+            return ResponseEntity.ok(review);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(java.util.Map.of("message", e.getMessage()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(java.util.Map.of("message", e.getMessage()));
+        }
+    }
+
     // 5. DELETE REVIEW
     @DeleteMapping("/{reviewId}")
     public ResponseEntity<?> deleteReview(
             @PathVariable String reviewId,
-            @RequestHeader("Authorization") String authHeader) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
         
-        String userId = getUserIdFromToken(authHeader);
+        String userId = getUserId(currentUser);
         if (userId == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(java.util.Map.of("message", "Authentication required"));
         }
 
-        boolean isAdmin = isAdmin(authHeader);
+        boolean isAdmin = isAdmin(currentUser);
 
         try {
             reviewService.deleteReview(reviewId, userId, isAdmin);
@@ -137,8 +172,8 @@ public class ReviewController {
 
     // 6. GET ALL REVIEWS (Admin only)
     @GetMapping("/all")
-    public ResponseEntity<?> getAllReviews(@RequestHeader("Authorization") String authHeader) {
-        if (!isAdmin(authHeader)) {
+    public ResponseEntity<?> getAllReviews(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        if (!isAdmin(currentUser)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
                     .body(java.util.Map.of("message", "Access denied. Admin only."));
         }
@@ -146,7 +181,21 @@ public class ReviewController {
         List<Review> reviews = reviewService.getAllReviews();
         return ResponseEntity.ok(reviews);
     }
-}
-
-
 
+    // 7. REBUILD BOOK RATINGS (Admin only - repair job recomputing the counters from reviews)
+    @PostMapping("/ratings/rebuild")
+    public ResponseEntity<?> rebuildBookRatings(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        if (!isAdmin(currentUser)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(java.util.Map.of("message", "Access denied. Admin only."));
+        }
+        try {
+            int booksWithReviews = reviewService.rebuildBookRatings();
+            return ResponseEntity.ok(java.util.Map.of("message", "Book ratings rebuilt",
+                    "booksWithReviews", booksWithReviews));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(java.util.Map.of("message", "Error rebuilding book ratings: " + e.getMessage()));
+        }
+    }
+}
@@ -10,16 +10,22 @@ import com.bookstore.backend.model.User;
 
 import com.bookstore.backend.service.UserService;
 
+import com.bookstore.backend.util.AuthenticatedUser;
+
 import com.bookstore.backend.util.JwtUtil;
 
 import org.springframework.beans.factory.annotation.Autowired;
 
+import org.springframework.http.HttpHeaders;
+
 import org.springframework.http.HttpStatus;
 
 import org.springframework.http.ResponseEntity;
 
 import org.springframework.security.access.prepost.PreAuthorize;
 
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+
 import org.springframework.web.bind.annotation.*;
 
 import org.slf4j.Logger;
@@ -30,6 +36,12 @@ import java.util.List;
 
 import java.util.Optional;
 
+import java.util.concurrent.CompletableFuture;
+
+import java.util.concurrent.CompletionException;
+
+import java.util.concurrent.RejectedExecutionException;
+
 @RestController
 
 @RequestMapping("/api/users")
@@ -46,15 +58,19 @@ public class UserController {
 
     private JwtUtil jwtUtil;
 
-    // 1. REGISTRATION
+    // 1. REGISTRATION (password hashing is offloaded, so this returns a future)
 
     @PostMapping("/register")
 
-    public ResponseEntity<?> registerUser(@RequestBody User user) {
+    public CompletableFuture<ResponseEntity<?>> registerUser(@RequestBody User user) {
 
-        try {
+        return userService.registerUserAsync(user).handle((newUser, error) -> {
+
+            if (error != null) {
 
-            User newUser = userService.registerUser(user);
+                return registrationError(unwrap(error));
+
+            }
 
             // Verify the user was actually saved with an ID
 
@@ -82,33 +98,41 @@ public class UserController {
 
             return new ResponseEntity<>(newUser, HttpStatus.CREATED);
 
-        } catch (IllegalArgumentException e) {
+        });
+
+    }
+
+    private ResponseEntity<?> registrationError(Throwable e) {
+
+        if (e instanceof RejectedExecutionException) {
+
+            return serverBusy();
+
+        } else if (e instanceof IllegalArgumentException) {
 
             return ResponseEntity.status(HttpStatus.CONFLICT)
 
                     .body(java.util.Map.of("message", e.getMessage())); // 409 Conflict (Email Exists)
 
-        } catch (RuntimeException e) {
+        } else if (e instanceof RuntimeException) {
 
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
 
                     .body(java.util.Map.of("message", "Registration failed: " + e.getMessage()));
 
-        } catch (Exception e) {
-
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+        }
 
-                    .body(java.util.Map.of("message", "Unexpected error during registration: " + e.getMessage()));
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
 
-        }
+                .body(java.util.Map.of("message", "Unexpected error during registration: " + e.getMessage()));
 
     }
 
-    // 6. LOGIN
+    // 6. LOGIN (password matching is offloaded, so this returns a future)
 
     @PostMapping("/login")
 
-    public ResponseEntity<?> loginUser(@RequestBody User userDetails) {
+    public CompletableFuture<ResponseEntity<?>> loginUser(@RequestBody User userDetails) {
 
         String email = userDetails.getEmail();
 
@@ -116,41 +140,79 @@ public class UserController {
 
         if (email == null || password == null || email.isEmpty() || password.isEmpty()) {
 
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST)
 
-                    .body(java.util.Map.of("message", "Email and password are required"));
+                    .body(java.util.Map.of("message", "Email and password are required")));
 
         }
 
-        Optional<User> userOptional = userService.authenticate(email, password);
+        return userService.authenticateAsync(email, password).handle((userOptional, error) -> {
 
-        if (userOptional.isPresent()) {
+            if (error != null) {
 
-            User user = userOptional.get();
+                Throwable cause = unwrap(error);
 
-            String token = jwtUtil.generateToken(user.getEmail(), user.getUser_id(), user.getRole()); // token delivery
+                if (cause instanceof RejectedExecutionException) {
 
-            LoginResponse loginResponse = new LoginResponse(
+                    return serverBusy();
 
-                    token,
+                }
 
-                    user.getUser_id(),
+                logger.error("Login failed: {}", cause.getMessage());
 
-                    user.getEmail(),
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
 
-                    user.getName(),
+                        .body(java.util.Map.of("message", "Login failed: " + cause.getMessage()));
 
-                    user.getRole());
+            }
 
-            return ResponseEntity.ok(loginResponse);
+            if (userOptional.isPresent()) {
 
-        } else {
+                User user = userOptional.get();
 
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                String token = jwtUtil.generateToken(user.getEmail(), user.getUser_id(), user.getRole()); // token delivery
 
-                    .body(java.util.Map.of("message", "Invalid email or password"));
+                LoginResponse loginResponse = new LoginResponse(
 
-        }
+                        token,
+
+                        user.getUser_id(),
+
+                        user.getEmail(),
+
+                        user.getName(),
+
+                        user.getRole());
+
+                return ResponseEntity.ok(loginResponse);
+
+            } else {
+
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+
+                        .body(java.util.Map.of("message", "Invalid email or password"));
+
+            }
+
+        });
+
+    }
+
+    // The password hashing pool is full; ask the client to back off
+
+    private ResponseEntity<?> serverBusy() {
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+
+                .header(HttpHeaders.RETRY_AFTER, "1")
+
+                .body(java.util.Map.of("message", "Server is busy, please try again shortly"));
+
+    }
+
+    private static Throwable unwrap(Throwable error) {
+
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
 
     }
 
@@ -328,11 +390,13 @@ public class UserController {
 
     @GetMapping("/me")
 
-    public ResponseEntity<?> getCurrentUser(@RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<?> getCurrentUser(@AuthenticationPrincipal AuthenticatedUser currentUser) {
 
         try {
 
-            if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            // Claims were verified once by JwtAuthenticationFilter and carried in the principal
+
+            if (currentUser == null) {
 
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
 
@@ -340,9 +404,7 @@ public class UserController {
 
             }
 
-            String token = authHeader.substring(7);
-
-            String userId = jwtUtil.extractClaim(token, claims -> claims.get("userId", String.class));
+            String userId = currentUser.getUserId();
 
             if (userId == null) {
 
@@ -394,13 +456,13 @@ public class UserController {
 
             @RequestBody PasswordChangeRequest request,
 
-            @RequestHeader("Authorization") String authHeader) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
 
         try {
 
             // Verify the user is changing their own password or is admin
 
-            if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            if (currentUser == null) {
 
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
 
@@ -408,11 +470,9 @@ public class UserController {
 
             }
 
-            String token = authHeader.substring(7);
-
-            String currentUserId = jwtUtil.extractClaim(token, claims -> claims.get("userId", String.class));
+            String currentUserId = currentUser.getUserId();
 
-            String role = jwtUtil.extractClaim(token, claims -> claims.get("role", String.class));
+            String role = currentUser.getRole();
 
             // Only allow users to change their own password, or admins to change any
 
@@ -0,0 +1,18 @@
+package com.bookstore.backend.dto;
+
+import com.bookstore.backend.model.Book;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookSearchResponse {
+    private String query;
+    private int page;
+    private int size;
+    private long totalHits;
+    private List<Book> books; // best match first
+}
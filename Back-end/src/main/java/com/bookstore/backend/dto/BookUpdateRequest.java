@@ -0,0 +1,19 @@
+package com.bookstore.backend.dto;
+
+import lombok.Data;
+import java.time.LocalDate;
+
+// Body of PUT /api/books/{id}; fields left out (null) are not changed
+@Data
+public class BookUpdateRequest {
+    private Double price;
+    private Integer stockQuantity;
+    private String title;
+    private String author;
+    private String description;
+    private String genre;
+    private String publisher;
+    private String language;
+    private String coverImageUrl;
+    private LocalDate publishedDate;
+}
@@ -0,0 +1,20 @@
+package com.bookstore.backend.dto;
+
+import lombok.Data;
+import java.time.LocalDate;
+
+// One line of a bulk catalog update; null fields are left unchanged (same rules as PUT /api/books/{id})
+@Data
+public class BulkBookUpdateItem {
+    private String bookId;
+    private Double price;
+    private Integer stockQuantity;
+    private String title;
+    private String author;
+    private String description;
+    private String genre;
+    private String publisher;
+    private String language;
+    private String coverImageUrl;
+    private LocalDate publishedDate;
+}
@@ -0,0 +1,49 @@
+package com.bookstore.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class BulkUpdateResult {
+
+    // Max items listed in failures; updated items are only counted, so the result stays small
+    // however long the feed is
+    public static final int MAX_REPORTED_FAILURES = 100;
+
+    private int total;
+    private int updated;
+    private int failed;
+    private String error; // Set when the body could not be read to the end; later items were not applied
+    private List<ItemResult> failures = new ArrayList<>(); // First failures only, see failed for the total
+
+    public void add(ItemResult result) {
+        total++;
+        if (ItemResult.UPDATED.equals(result.getStatus())) {
+            updated++;
+            return;
+        }
+        failed++;
+        if (failures.size() < MAX_REPORTED_FAILURES) {
+            failures.add(result);
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ItemResult {
+        public static final String UPDATED = "UPDATED";
+        public static final String NOT_FOUND = "NOT_FOUND";
+        public static final String INVALID = "INVALID";
+        public static final String FAILED = "FAILED";
+
+        private int index; // Position of the item in the request body
+        private String bookId;
+        private String status;
+        private String message;
+    }
+}
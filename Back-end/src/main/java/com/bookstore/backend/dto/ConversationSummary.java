@@ -0,0 +1,17 @@
+package com.bookstore.backend.dto;
+
+import lombok.Data;
+import java.time.LocalDateTime;
+
+// One admin inbox row: the conversation header without its messages
+@Data
+public class ConversationSummary {
+    private String conversationId;
+    private String userEmail;
+    private String userName;
+    private String subject;
+    private String status;
+    private LocalDateTime lastMessageAt;
+    private String lastMessageBy;
+    private int unreadByAdmin;
+}
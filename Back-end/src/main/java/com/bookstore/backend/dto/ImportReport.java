@@ -0,0 +1,28 @@
+package com.bookstore.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+public class ImportReport {
+    private String format;
+    private long rowsRead;
+    private long inserted;
+    private long updated;
+    private long duplicates; // Rows superseded by a later row for the same book in the same batch
+    private long rejected;
+    private List<Reject> rejects; // First rejects only, see rejected for the total
+    private long elapsedMs;
+    private long rowsPerSecond;
+    private String error; // Set when the file could not be read to the end
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Reject {
+        private long row; // 1-based data row (header excluded)
+        private String reason;
+    }
+}
@@ -0,0 +1,16 @@
+package com.bookstore.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RatingSummary {
+    private String bookId;
+    private Double averageRating; // null when the book has no reviews
+    private long ratingCount;
+    private Map<String, Long> histogram; // Star ("1".."5") -> number of reviews, every star present
+}
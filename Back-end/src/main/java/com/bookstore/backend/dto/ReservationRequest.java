@@ -0,0 +1,10 @@
+package com.bookstore.backend.dto;
+
+import lombok.Data;
+
+@Data
+public class ReservationRequest {
+    private String bookId;
+    private int quantity;
+    private Integer ttlSeconds; // Optional, defaults to inventory.reservations.ttl-seconds
+}
@@ -0,0 +1,15 @@
+package com.bookstore.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockAvailability {
+    private String bookId;
+    private int stockQuantity;
+    private int reservedQuantity; // Units held by active reservations
+    private int availableQuantity; // stockQuantity - reservedQuantity, never below 0
+}
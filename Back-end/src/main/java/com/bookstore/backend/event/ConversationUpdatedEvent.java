@@ -0,0 +1,100 @@
+package com.bookstore.backend.event;
+
+import com.bookstore.backend.model.Conversation;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+
+// Published by ConversationService after each change to a conversation; also the payload
+// ConversationStreamService pushes to connected clients (event name = type)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ConversationUpdatedEvent {
+
+    public static final String MESSAGE_ADDED = "MESSAGE_ADDED";
+    public static final String MESSAGES_READ = "MESSAGES_READ";
+    public static final String STATUS_CHANGED = "STATUS_CHANGED";
+    // Sent to a client whose queue overflowed, or that reconnected after events it can no longer
+    // be replayed: some deltas were missed, reload and carry on
+    public static final String RESYNC = "RESYNC";
+
+    private final String type;
+    private final String conversationId;
+    private final String userEmail;
+    private final String status;
+    private final Integer unreadByAdmin;
+    private final Integer unreadByUser;
+    private final LocalDateTime lastMessageAt;
+    private final Conversation.Message message; // MESSAGE_ADDED only
+    private final String reader; // MESSAGES_READ only: the side that read them
+    private final Integer markedRead; // MESSAGES_READ only
+
+    private ConversationUpdatedEvent(String type, Conversation header, Conversation.Message message,
+            String reader, Integer markedRead) {
+        this.type = type;
+        this.conversationId = header != null ? header.getConversationId() : null;
+        this.userEmail = header != null ? header.getUserEmail() : null;
+        this.status = header != null ? header.getStatus() : null;
+        this.unreadByAdmin = header != null ? header.getUnreadByAdmin() : null;
+        this.unreadByUser = header != null ? header.getUnreadByUser() : null;
+        this.lastMessageAt = header != null ? header.getLastMessageAt() : null;
+        this.message = message;
+        this.reader = reader;
+        this.markedRead = markedRead;
+    }
+
+    public static ConversationUpdatedEvent messageAdded(Conversation header, Conversation.Message message) {
+        return new ConversationUpdatedEvent(MESSAGE_ADDED, header, message, null, null);
+    }
+
+    public static ConversationUpdatedEvent messagesRead(Conversation header, String reader, int markedRead) {
+        return new ConversationUpdatedEvent(MESSAGES_READ, header, null, reader, markedRead);
+    }
+
+    public static ConversationUpdatedEvent statusChanged(Conversation header) {
+        return new ConversationUpdatedEvent(STATUS_CHANGED, header, null, null, null);
+    }
+
+    public static ConversationUpdatedEvent resync() {
+        return new ConversationUpdatedEvent(RESYNC, null, null, null, null);
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getConversationId() {
+        return conversationId;
+    }
+
+    public String getUserEmail() {
+        return userEmail;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public Integer getUnreadByAdmin() {
+        return unreadByAdmin;
+    }
+
+    public Integer getUnreadByUser() {
+        return unreadByUser;
+    }
+
+    public LocalDateTime getLastMessageAt() {
+        return lastMessageAt;
+    }
+
+    public Conversation.Message getMessage() {
+        return message;
+    }
+
+    public String getReader() {
+        return reader;
+    }
+
+    public Integer getMarkedRead() {
+        return markedRead;
+    }
+}
@@ -0,0 +1,33 @@
+package com.bookstore.backend.event;
+
+// Published by InventoryService whenever a book's stock quantity changes
+public class StockLevelChangedEvent {
+
+    private final String bookId;
+    private final String title;
+    private final String author;
+    private final int stockQuantity;
+
+    public StockLevelChangedEvent(String bookId, String title, String author, int stockQuantity) {
+        this.bookId = bookId;
+        this.title = title;
+        this.author = author;
+        this.stockQuantity = stockQuantity;
+    }
+
+    public String getBookId() {
+        return bookId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public int getStockQuantity() {
+        return stockQuantity;
+    }
+}
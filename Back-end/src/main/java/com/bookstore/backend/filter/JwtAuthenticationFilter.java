@@ -1,6 +1,8 @@
 package com.bookstore.backend.filter;
 
+import com.bookstore.backend.util.AuthenticatedUser;
 import com.bookstore.backend.util.JwtUtil;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -39,14 +41,21 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         try {
             final String jwt = authHeader.substring(7);
-            final String username = jwtUtil.extractUsername(jwt);
 
-            if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                if (jwtUtil.validateToken(jwt, username)) {
-                    String role = jwtUtil.extractClaim(jwt, claims -> claims.get("role", String.class));
+            if (SecurityContextHolder.getContext().getAuthentication() == null) {
+                // Single parse: signature, expiry and all claims at once
+                Claims claims = jwtUtil.parseClaims(jwt);
+                String username = claims.getSubject();
 
-                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                if (username != null) {
+                    String role = claims.get("role", String.class);
+                    AuthenticatedUser principal = new AuthenticatedUser(
                             username,
+                            claims.get("userId", String.class),
+                            role);
+
+                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                            principal,
                             null,
                             Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + role))
                     );
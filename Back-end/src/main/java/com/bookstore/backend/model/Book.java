@@ -4,6 +4,7 @@ import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 import lombok.Data;
 import java.time.LocalDate;
+import java.util.Map;
 
 @Data
 @Document(collection = "books")
@@ -11,6 +12,7 @@ public class Book {
 
     @Id
     private String book_id;
+    private String isbn; // Optional; catalog imports match existing books on it
     private String title;
     private String author;
     private double price;
@@ -19,8 +21,12 @@ public class Book {
     private String publisher;
     private String language;
     private int stockQuantity;
+    private int reservedQuantity; // Units held by active stock reservations (available = stock - reserved)
     private String stockStatus; // "IN_STOCK", "OUT_OF_STOCK", "LOW_STOCK"
     private String coverImageUrl;
     private LocalDate publishedDate;
-    private Double rating; // Average rating (0.0 to 5.0)
+    private Double rating; // Average rating (0.0 to 5.0), derived from ratingSum / ratingCount
+    private long ratingSum; // Sum of all non-deleted review ratings
+    private long ratingCount; // Number of non-deleted reviews
+    private Map<String, Long> ratingHistogram; // Star ("1".."5") -> number of reviews
 }
\ No newline at end of file
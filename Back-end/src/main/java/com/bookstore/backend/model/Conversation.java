@@ -1,11 +1,11 @@
 package com.bookstore.backend.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 import lombok.Data;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.ArrayList;
 
 @Data
 @Document(collection = "conversations")
@@ -17,22 +17,22 @@ public class Conversation {
     private String userName;
     private String subject;
     private String status; // "ACTIVE", "CLOSED"
+    // Messages live in MessageBucket documents. Only conversations stored before bucketing
+    // still have them here (until first touched); API responses carry the latest page.
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private List<Message> messages;
+    private Long messageCount; // Messages ever added, also the next message's seq; null before bucketing
+    private int unreadByAdmin; // USER messages the admin side has not read
+    private int unreadByUser; // ADMIN messages the user has not read
     private LocalDateTime createdAt;
     private LocalDateTime lastMessageAt;
     private String lastMessageBy;
+    private String lastMessageId;
 
     public Conversation() {
         this.createdAt = LocalDateTime.now();
         this.lastMessageAt = LocalDateTime.now();
         this.status = "ACTIVE";
-        this.messages = new ArrayList<>();
-    }
-
-    public void addMessage(Message message) {
-        this.messages.add(message);
-        this.lastMessageAt = message.getCreatedAt();
-        this.lastMessageBy = message.getSender();
     }
 
     public void markAsClosed() {
@@ -46,6 +46,7 @@ public class Conversation {
     @Data
     public static class Message {
         private String messageId;
+        private long seq; // Position in the conversation (0 = first message)
         private String sender; // "USER" or "ADMIN"
         private String senderName;
         private String content;
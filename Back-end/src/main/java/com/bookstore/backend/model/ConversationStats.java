@@ -0,0 +1,23 @@
+package com.bookstore.backend.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+// Store-wide unread totals for the admin badge, maintained with $inc alongside the
+// per-conversation unreadByAdmin / unreadByUser counters
+@Data
+@Document(collection = "conversation_stats")
+public class ConversationStats {
+
+    public static final String UNREAD = "unread";
+
+    @Id
+    private String statsId; // always UNREAD
+    private long conversationsUnreadByAdmin; // conversations with unreadByAdmin > 0
+    private long messagesUnreadByAdmin; // sum of unreadByAdmin
+    private long conversationsUnreadByUser;
+    private long messagesUnreadByUser;
+    private LocalDateTime rebuiltAt;
+}
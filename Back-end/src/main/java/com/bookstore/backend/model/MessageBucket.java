@@ -0,0 +1,34 @@
+package com.bookstore.backend.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import lombok.Data;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Up to MESSAGES_PER_BUCKET messages of one conversation. Message seq n always lives in
+// bucket n / MESSAGES_PER_BUCKET, so the bucket for a new message is known without a lookup.
+@Data
+@Document(collection = "conversation_messages")
+public class MessageBucket {
+
+    // Fixed for the life of the data: changing it would move messages to other bucket ids
+    public static final int MESSAGES_PER_BUCKET = 100;
+
+    @Id
+    private String bucketId; // "<conversationId>:<bucketNo>"
+    private String conversationId;
+    private long bucketNo;
+    private int count;
+    private LocalDateTime firstMessageAt;
+    private LocalDateTime lastMessageAt;
+    private List<Conversation.Message> messages; // Append order; concurrent replies may be out of seq order
+
+    public static String bucketId(String conversationId, long bucketNo) {
+        return conversationId + ":" + bucketNo;
+    }
+
+    public static long bucketNo(long seq) {
+        return seq / MESSAGES_PER_BUCKET;
+    }
+}
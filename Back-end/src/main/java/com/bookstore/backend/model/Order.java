@@ -33,5 +33,6 @@ public class Order {
         private String title;
         private double price;
         private int quantity;
+        private String reservationId; // Optional stock reservation this line was held by
     }
 }
\ No newline at end of file
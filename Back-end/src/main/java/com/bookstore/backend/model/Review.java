@@ -2,8 +2,11 @@ package com.bookstore.backend.model;
 
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 @Data
 @Document(collection = "reviews")
@@ -17,11 +20,17 @@ public class Review {
     private int rating; // 1 to 5
     private String reviewText;
     private LocalDateTime createdAt;
+    private LocalDateTime updatedAt; // Last edit or soft delete
     private boolean isDeleted; // Soft delete flag
+    private int helpfulCount; // Number of users who marked this review helpful
+    @JsonIgnore
+    private List<String> helpfulVoterIds; // Users who marked it helpful (one vote each)
 
     public Review() {
         this.createdAt = LocalDateTime.now();
         this.isDeleted = false;
+        this.helpfulCount = 0;
+        this.helpfulVoterIds = new ArrayList<>();
     }
 }
 
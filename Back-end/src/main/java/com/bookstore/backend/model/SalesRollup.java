@@ -0,0 +1,23 @@
+package com.bookstore.backend.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+// Pre-aggregated sales counters, maintained with $inc as orders are placed and change status
+@Data
+@Document(collection = "sales_rollups")
+public class SalesRollup {
+
+    @Id
+    private String rollupId; // "<type>:<key>", e.g. "MONTH:2024-05"
+    private String type; // "DAY", "MONTH", "BOOK", "STATUS"
+    private String key; // "2024-05-01", "2024-05", book ID or order status
+    private long orderCount;
+    private double revenue;
+    private long itemsSold;
+    private String title; // BOOK rollups only
+    private double price; // BOOK rollups only, last price sold at
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,26 @@
+package com.bookstore.backend.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+@Data
+@Document(collection = "stock_reservations")
+public class StockReservation {
+
+    @Id
+    private String reservation_id;
+    private String bookId;
+    private String userId;
+    private int quantity;
+    private String status; // "ACTIVE", "COMMITTED", "RELEASED", "EXPIRED"
+    private LocalDateTime createdAt;
+    private LocalDateTime expiresAt; // ACTIVE holds past this are released by the sweeper
+    private String orderId; // Set once committed
+
+    public StockReservation() {
+        this.createdAt = LocalDateTime.now();
+        this.status = "ACTIVE";
+    }
+}
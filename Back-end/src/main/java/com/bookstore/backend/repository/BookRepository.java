@@ -9,6 +9,9 @@ import java.util.List;
 @Repository
 public interface BookRepository extends MongoRepository<Book, String> {
 
+    // Projection for the admin inventory views
+    String INVENTORY_FIELDS = "{ 'title': 1, 'author': 1, 'price': 1, 'stockQuantity': 1, 'stockStatus': 1 }";
+
     @Query("{ 'genre': ?0, 'book_id': { $ne: ?1 } }")
     List<Book> findByGenreAndNotId(String genre, String excludeId);
 
@@ -23,4 +26,17 @@ public interface BookRepository extends MongoRepository<Book, String> {
 
     @Query("{}")
     List<Book> findAll();
-}
\ No newline at end of file
+
+    // Inventory views, served by the stockQuantity / stockStatus indexes
+    @Query(value = "{}", fields = INVENTORY_FIELDS)
+    List<Book> findAllInventoryItems();
+
+    @Query(value = "{ 'stockQuantity': { $gte: ?0, $lte: ?1 } }", fields = INVENTORY_FIELDS, sort = "{ 'stockQuantity': 1 }")
+    List<Book> findInventoryByStockQuantityBetween(int min, int max);
+
+    @Query(value = "{ $or: [ { 'stockQuantity': { $lte: 0 } }, { 'stockQuantity': null }, { 'stockStatus': 'OUT_OF_STOCK' } ] }", fields = INVENTORY_FIELDS)
+    List<Book> findOutOfStockInventory();
+
+    @Query(value = "{ 'stockQuantity': { $gt: 0 }, 'stockStatus': { $ne: 'OUT_OF_STOCK' } }", fields = INVENTORY_FIELDS)
+    List<Book> findInStockInventory();
+}
@@ -29,9 +29,10 @@ public interface ConversationRepository extends MongoRepository<Conversation, St
     @Query("{ 'status': { $ne: 'CLOSED' } }")
     List<Conversation> findActiveConversations();
 
-    @Query("{ 'messages': { $elemMatch: { 'sender': 'USER', 'read': false } } }")
+    // Read the denormalized counters (partial indexes unreadByAdmin_lastMessageAt / unreadByUser_lastMessageAt)
+    @Query(value = "{ 'unreadByAdmin': { $gt: 0 } }", fields = "{ 'messages': 0 }", sort = "{ 'lastMessageAt': -1 }")
     List<Conversation> findConversationsWithUnreadUserMessages();
 
-    @Query("{ 'messages': { $elemMatch: { 'sender': 'ADMIN', 'read': false } } }")
+    @Query(value = "{ 'unreadByUser': { $gt: 0 } }", fields = "{ 'messages': 0 }", sort = "{ 'lastMessageAt': -1 }")
     List<Conversation> findConversationsWithUnreadAdminMessages();
 }
@@ -0,0 +1,14 @@
+package com.bookstore.backend.repository;
+
+import com.bookstore.backend.model.SalesRollup;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+
+@Repository
+public interface SalesRollupRepository extends MongoRepository<SalesRollup, String> {
+
+    List<SalesRollup> findByType(String type);
+
+    List<SalesRollup> findByTypeOrderByKeyDesc(String type);
+}
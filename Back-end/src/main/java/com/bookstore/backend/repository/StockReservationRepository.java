@@ -0,0 +1,11 @@
+package com.bookstore.backend.repository;
+
+import com.bookstore.backend.model.StockReservation;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+
+@Repository
+public interface StockReservationRepository extends MongoRepository<StockReservation, String> {
+    List<StockReservation> findByUserIdAndStatus(String userId, String status);
+}
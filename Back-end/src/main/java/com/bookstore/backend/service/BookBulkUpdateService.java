@@ -0,0 +1,269 @@
+package com.bookstore.backend.service;
+
+import com.bookstore.backend.dto.BulkBookUpdateItem;
+import com.bookstore.backend.dto.BulkStockUpdateItem;
+import com.bookstore.backend.dto.BulkUpdateResult;
+import com.bookstore.backend.dto.BulkUpdateResult.ItemResult;
+import com.bookstore.backend.event.StockLevelChangedEvent;
+import com.bookstore.backend.model.Book;
+import com.bookstore.backend.repository.BookRepository;
+import com.bookstore.backend.util.JsonChunkReader;
+import com.mongodb.bulk.BulkWriteError;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Applies supplier feeds (JSON array or NDJSON) in chunks of unordered bulk writes,
+// one $set per book, instead of a findById + full save per HTTP call
+@Service
+public class BookBulkUpdateService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookBulkUpdateService.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookSearchService bookSearchService;
+
+    @Autowired
+    private BookCacheService bookCacheService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${bulk.chunk-size:1000}")
+    private int chunkSize;
+
+    // PUT /api/inventory/stock/bulk: {"bookId": "...", "stockQuantity": 12}
+    public BulkUpdateResult updateStock(InputStream body) {
+        return apply(body, BulkStockUpdateItem.class, new ItemHandler<BulkStockUpdateItem>() {
+            @Override
+            public String bookId(BulkStockUpdateItem item) {
+                return item.getBookId();
+            }
+
+            @Override
+            public String validate(BulkStockUpdateItem item) {
+                if (item.getStockQuantity() == null || item.getStockQuantity() < 0) {
+                    return "stockQuantity must be zero or more";
+                }
+                return null;
+            }
+
+            @Override
+            public Update toUpdate(BulkStockUpdateItem item) {
+                return new Update()
+                        .set("stockQuantity", item.getStockQuantity())
+                        .set("stockStatus", InventoryService.determineStockStatus(item.getStockQuantity()));
+            }
+
+            @Override
+            public void afterChunk(List<BulkStockUpdateItem> applied, Map<String, Book> booksById) {
+                for (BulkStockUpdateItem item : applied) {
+                    publishStockChange(booksById.get(item.getBookId()), item.getStockQuantity());
+                }
+            }
+        });
+    }
+
+    // PUT /api/books/bulk: any subset of the editable fields, e.g. {"bookId": "...", "price": 9.99}
+    public BulkUpdateResult updateBooks(InputStream body) {
+        return apply(body, BulkBookUpdateItem.class, new ItemHandler<BulkBookUpdateItem>() {
+            @Override
+            public String bookId(BulkBookUpdateItem item) {
+                return item.getBookId();
+            }
+
+            @Override
+            public String validate(BulkBookUpdateItem item) {
+                if (item.getPrice() != null && item.getPrice() <= 0) {
+                    return "price must be greater than zero";
+                }
+                if (item.getStockQuantity() != null && item.getStockQuantity() < 0) {
+                    return "stockQuantity must be zero or more";
+                }
+                if (toUpdate(item).getUpdateObject().isEmpty()) {
+                    return "No fields to update";
+                }
+                return null;
+            }
+
+            @Override
+            public Update toUpdate(BulkBookUpdateItem item) {
+                Update update = new Update();
+                setIfPresent(update, "price", item.getPrice());
+                setIfPresent(update, "title", item.getTitle());
+                setIfPresent(update, "author", item.getAuthor());
+                setIfPresent(update, "description", item.getDescription());
+                setIfPresent(update, "genre", item.getGenre());
+                setIfPresent(update, "publisher", item.getPublisher());
+                setIfPresent(update, "language", item.getLanguage());
+                setIfPresent(update, "coverImageUrl", item.getCoverImageUrl());
+                setIfPresent(update, "publishedDate", item.getPublishedDate());
+                if (item.getStockQuantity() != null) {
+                    update.set("stockQuantity", item.getStockQuantity())
+                            .set("stockStatus", InventoryService.determineStockStatus(item.getStockQuantity()));
+                }
+                return update;
+            }
+
+            @Override
+            public void afterChunk(List<BulkBookUpdateItem> applied, Map<String, Book> booksById) {
+                List<String> reindexIds = new ArrayList<>();
+                for (BulkBookUpdateItem item : applied) {
+                    if (item.getStockQuantity() != null) {
+                        publishStockChange(booksById.get(item.getBookId()), item.getStockQuantity());
+                    }
+                    if (item.getTitle() != null || item.getAuthor() != null || item.getDescription() != null
+                            || item.getGenre() != null || item.getPublisher() != null) {
+                        reindexIds.add(item.getBookId());
+                    }
+                }
+                // Searchable text changed: refresh those books in the search index
+                if (!reindexIds.isEmpty()) {
+                    for (Book book : bookRepository.findAllById(reindexIds)) {
+                        bookSearchService.index(book);
+                    }
+                }
+            }
+        });
+    }
+
+    private <T> BulkUpdateResult apply(InputStream body, Class<T> itemType, ItemHandler<T> handler) {
+        long startTime = System.currentTimeMillis();
+        BulkUpdateResult result = new BulkUpdateResult();
+
+        try (JsonChunkReader<T> reader = new JsonChunkReader<>(objectMapper, body, itemType)) {
+            int offset = 0;
+            List<T> chunk;
+            while (!(chunk = reader.nextChunk(chunkSize)).isEmpty()) {
+                applyChunk(chunk, offset, handler, result);
+                offset += chunk.size();
+            }
+            result.setError(reader.getError());
+        }
+
+        logger.info("Bulk {} update: {} items, {} updated, {} failed in {} ms", itemType.getSimpleName(),
+                result.getTotal(), result.getUpdated(), result.getFailed(), System.currentTimeMillis() - startTime);
+        return result;
+    }
+
+    private <T> void applyChunk(List<T> chunk, int offset, ItemHandler<T> handler, BulkUpdateResult result) {
+        ItemResult[] results = new ItemResult[chunk.size()];
+
+        // Validate, and keep only the last item per book so unordered writes cannot race each other
+        Map<String, Integer> lastIndexByBookId = new LinkedHashMap<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            T item = chunk.get(i);
+            String bookId = handler.bookId(item);
+            String error = bookId == null || bookId.isBlank() ? "bookId is required" : handler.validate(item);
+            if (error != null) {
+                results[i] = new ItemResult(offset + i, bookId, ItemResult.INVALID, error);
+                continue;
+            }
+            Integer previous = lastIndexByBookId.put(bookId, i);
+            if (previous != null) {
+                results[previous] = new ItemResult(offset + previous, bookId, ItemResult.INVALID,
+                        "Superseded by a later item for the same book");
+            }
+        }
+
+        // One $in query tells us which books exist (and gives titles for stock events)
+        Map<String, Book> booksById = new HashMap<>();
+        if (!lastIndexByBookId.isEmpty()) {
+            Query existing = new Query(Criteria.where("book_id").in(lastIndexByBookId.keySet()));
+            existing.fields().include("title", "author");
+            for (Book book : mongoTemplate.find(existing, Book.class)) {
+                booksById.put(book.getBook_id(), book);
+            }
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Book.class);
+        List<Integer> opItemIndexes = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : lastIndexByBookId.entrySet()) {
+            int i = entry.getValue();
+            if (!booksById.containsKey(entry.getKey())) {
+                results[i] = new ItemResult(offset + i, entry.getKey(), ItemResult.NOT_FOUND, "Book not found");
+                continue;
+            }
+            bulk.updateOne(new Query(Criteria.where("book_id").is(entry.getKey())), handler.toUpdate(chunk.get(i)));
+            opItemIndexes.add(i);
+        }
+
+        if (!opItemIndexes.isEmpty()) {
+            try {
+                bulk.execute();
+            } catch (BulkOperationException e) {
+                // Unordered: the other writes in the chunk still went through
+                for (BulkWriteError error : e.getErrors()) {
+                    int i = opItemIndexes.get(error.getIndex());
+                    results[i] = new ItemResult(offset + i, handler.bookId(chunk.get(i)), ItemResult.FAILED,
+                            error.getMessage());
+                }
+            }
+            bookCacheService.evictAll(booksById.keySet());
+        }
+
+        List<T> applied = new ArrayList<>();
+        for (int i : opItemIndexes) {
+            if (results[i] == null) {
+                results[i] = new ItemResult(offset + i, handler.bookId(chunk.get(i)), ItemResult.UPDATED, null);
+                applied.add(chunk.get(i));
+            }
+        }
+        handler.afterChunk(applied, booksById);
+
+        for (ItemResult itemResult : results) {
+            result.add(itemResult);
+        }
+    }
+
+    private void publishStockChange(Book book, int stockQuantity) {
+        if (book != null) {
+            eventPublisher.publishEvent(new StockLevelChangedEvent(book.getBook_id(), book.getTitle(),
+                    book.getAuthor(), stockQuantity));
+        }
+    }
+
+    private static void setIfPresent(Update update, String field, Object value) {
+        if (value != null) {
+            update.set(field, value);
+        }
+    }
+
+    private interface ItemHandler<T> {
+        String bookId(T item);
+
+        // Returns an error message, or null when the item can be applied
+        String validate(T item);
+
+        Update toUpdate(T item);
+
+        // Side effects for the items that were written (stock events, search index)
+        void afterChunk(List<T> applied, Map<String, Book> booksById);
+    }
+}
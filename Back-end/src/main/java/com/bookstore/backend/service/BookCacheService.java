@@ -0,0 +1,119 @@
+package com.bookstore.backend.service;
+
+import com.bookstore.backend.model.Book;
+import com.bookstore.backend.repository.BookRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Read-through cache of full Book documents by id for the hot lookups (book page, reviews,
+// reports). Every write path evicts the ids it touched; the TTL bounds staleness for anything
+// that slips through (e.g. writes from another instance). Checkout reads prices from MongoDB,
+// not from here.
+// Cached books are shared: callers must not modify them, load from BookRepository to edit.
+@Service
+public class BookCacheService {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    @Value("${books.cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${books.cache.ttl:300000}") // 5 minutes in milliseconds
+    private long ttl;
+
+    // Caffeine's default eviction is size-bounded W-TinyLFU
+    private Cache<String, Book> booksById;
+
+    // Bumped before every eviction, so a bulk fill can tell a write may have raced its read
+    private final AtomicLong evictions = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        booksById = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttl))
+                .recordStats()
+                .build();
+
+        // Exposed as cache.gets{cache=books.by-id,result=hit|miss}, cache.evictions and cache.size
+        meterRegistry.ifAvailable(registry -> CaffeineCacheMetrics.monitor(registry, booksById, "books.by-id"));
+    }
+
+    public Optional<Book> findById(String bookId) {
+        if (bookId == null) {
+            return Optional.empty();
+        }
+        // Missing books are not cached, so a book created later is found straight away
+        return Optional.ofNullable(booksById.get(bookId, id -> bookRepository.findById(id).orElse(null)));
+    }
+
+    // Cached books plus one $in query for the misses; ids that do not exist are left out.
+    // Unlike get(key, loader) the fill is not atomic with evict(): if any eviction happened since
+    // before the read, the loaded books are dropped from the cache again rather than risk keeping
+    // a copy older than the write that evicted it.
+    public Map<String, Book> findAllById(Collection<String> bookIds) {
+        Map<String, Book> found = new HashMap<>(booksById.getAllPresent(bookIds));
+
+        List<String> missing = new ArrayList<>();
+        for (String bookId : bookIds) {
+            if (bookId != null && !found.containsKey(bookId)) {
+                missing.add(bookId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            long evictionsBefore = evictions.get();
+            Map<String, Book> loaded = new HashMap<>();
+            for (Book book : bookRepository.findAllById(missing)) {
+                loaded.put(book.getBook_id(), book);
+            }
+            booksById.putAll(loaded);
+            if (evictions.get() != evictionsBefore) {
+                booksById.invalidateAll(loaded.keySet());
+            }
+            found.putAll(loaded);
+        }
+        return found;
+    }
+
+    public boolean existsById(String bookId) {
+        return findById(bookId).isPresent();
+    }
+
+    public void evict(String bookId) {
+        if (bookId != null) {
+            evictions.incrementAndGet();
+            booksById.invalidate(bookId);
+        }
+    }
+
+    public void evictAll(Collection<String> bookIds) {
+        evictions.incrementAndGet();
+        booksById.invalidateAll(bookIds);
+    }
+
+    // For writes that cannot name the books they touched (catalog import, full rating rebuild)
+    public void clear() {
+        evictions.incrementAndGet();
+        booksById.invalidateAll();
+    }
+}
@@ -0,0 +1,210 @@
+package com.bookstore.backend.service;
+
+import com.bookstore.backend.model.Book;
+import com.bookstore.backend.model.Review;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.GroupOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
+
+// Keeps Book.ratingSum / ratingCount / ratingHistogram in step with reviews using $inc deltas,
+// so a new review never rescans the book's other reviews. rating is derived from the counters.
+@Service
+public class BookRatingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookRatingService.class);
+
+    private static final int MIN_STARS = 1;
+    private static final int MAX_STARS = 5;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private BookCacheService bookCacheService;
+
+    @Value("${startup.migrations.enabled:true}")
+    private boolean startupMigrations;
+
+    // Books saved before the counters existed have no ratingCount field; seed them once
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateLegacyBooks() {
+        if (!startupMigrations) {
+            return;
+        }
+        try {
+            Query query = new Query(Criteria.where("ratingCount").exists(false));
+            query.fields().include("book_id");
+
+            List<String> bookIds = new ArrayList<>();
+            for (Book book : mongoTemplate.find(query, Book.class)) {
+                bookIds.add(book.getBook_id());
+            }
+
+            if (!bookIds.isEmpty()) {
+                int rated = repair(bookIds);
+                logger.info("Rating counters seeded for {} books ({} with reviews)", bookIds.size(), rated);
+            }
+        } catch (Exception e) {
+            logger.error("Failed to seed book rating counters: {}", e.getMessage());
+        }
+    }
+
+    public void reviewAdded(String bookId, int rating) {
+        Update update = new Update()
+                .inc("ratingSum", rating)
+                .inc("ratingCount", 1)
+                .inc(histogramField(rating), 1);
+        applyDelta(bookId, update);
+    }
+
+    public void reviewRemoved(String bookId, int rating) {
+        Update update = new Update()
+                .inc("ratingSum", -rating)
+                .inc("ratingCount", -1)
+                .inc(histogramField(rating), -1);
+        applyDelta(bookId, update);
+    }
+
+    public void reviewChanged(String bookId, int oldRating, int newRating) {
+        if (oldRating == newRating) {
+            return;
+        }
+        Update update = new Update()
+                .inc("ratingSum", newRating - oldRating)
+                .inc(histogramField(oldRating), -1)
+                .inc(histogramField(newRating), 1);
+        applyDelta(bookId, update);
+    }
+
+    // Rebuilds every book's counters from the reviews collection; returns how many books have reviews.
+    // Reviews written while this runs may be counted slightly off until the next rebuild.
+    public int rebuild() {
+        long startTime = System.currentTimeMillis();
+        int rated = repair(null);
+        logger.info("Book rating counters rebuilt: {} books with reviews in {} ms", rated,
+                System.currentTimeMillis() - startTime);
+        return rated;
+    }
+
+    private void applyDelta(String bookId, Update update) {
+        Query query = new Query(Criteria.where("book_id").is(bookId));
+        query.fields().include("ratingSum").include("ratingCount");
+
+        Book updated = mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), Book.class);
+
+        if (updated != null) {
+            syncRating(updated);
+            bookCacheService.evict(bookId);
+        }
+    }
+
+    // Only writes if the counters are still the ones the average was computed from,
+    // so a slower writer never overwrites the rating of a newer delta
+    private void syncRating(Book book) {
+        Query query = new Query(Criteria.where("book_id").is(book.getBook_id())
+                .and("ratingSum").is(book.getRatingSum())
+                .and("ratingCount").is(book.getRatingCount()));
+        mongoTemplate.updateFirst(query, new Update().set("rating", average(book.getRatingSum(), book.getRatingCount())),
+                Book.class);
+    }
+
+    // Recomputes the counters for the given books (all books when bookIds is null)
+    private int repair(Collection<String> bookIds) {
+        Criteria reviewCriteria = Criteria.where("isDeleted").is(false);
+        if (bookIds != null) {
+            reviewCriteria = reviewCriteria.and("book_id").in(bookIds);
+        }
+
+        GroupOperation group = group("book_id")
+                .sum("rating").as("ratingSum")
+                .count().as("ratingCount");
+        for (int stars = MIN_STARS; stars <= MAX_STARS; stars++) {
+            group = group.sum(ConditionalOperators.when(Criteria.where("rating").is(stars)).then(1).otherwise(0))
+                    .as("stars" + stars);
+        }
+
+        Aggregation aggregation = newAggregation(match(reviewCriteria), group);
+        List<Document> rows = mongoTemplate.aggregate(aggregation, Review.class, Document.class).getMappedResults();
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Book.class);
+        Set<String> ratedBookIds = new HashSet<>();
+
+        for (Document row : rows) {
+            Object bookId = row.get("_id");
+            if (bookId == null) {
+                continue;
+            }
+            ratedBookIds.add(bookId.toString());
+
+            long ratingSum = longValue(row, "ratingSum");
+            long ratingCount = longValue(row, "ratingCount");
+            Map<String, Long> histogram = new LinkedHashMap<>();
+            for (int stars = MIN_STARS; stars <= MAX_STARS; stars++) {
+                histogram.put(String.valueOf(stars), longValue(row, "stars" + stars));
+            }
+
+            bulk.updateOne(new Query(Criteria.where("book_id").is(bookId.toString())), new Update()
+                    .set("ratingSum", ratingSum)
+                    .set("ratingCount", ratingCount)
+                    .set("ratingHistogram", histogram)
+                    .set("rating", average(ratingSum, ratingCount)));
+        }
+
+        // Everything else has no live reviews
+        Criteria unrated = Criteria.where("book_id").nin(ratedBookIds);
+        if (bookIds != null) {
+            unrated = new Criteria().andOperator(Criteria.where("book_id").in(bookIds), unrated);
+        }
+        bulk.updateMulti(new Query(unrated), new Update()
+                .set("ratingSum", 0L)
+                .set("ratingCount", 0L)
+                .set("ratingHistogram", new LinkedHashMap<String, Long>())
+                .set("rating", null));
+
+        bulk.execute();
+        if (bookIds != null) {
+            bookCacheService.evictAll(bookIds);
+        } else {
+            bookCacheService.clear();
+        }
+        return ratedBookIds.size();
+    }
+
+    private static String histogramField(int rating) {
+        return "ratingHistogram." + rating;
+    }
+
+    private static Double average(long ratingSum, long ratingCount) {
+        return ratingCount > 0 ? (double) ratingSum / ratingCount : null;
+    }
+
+    private static long longValue(Document document, String key) {
+        Object value = document.get(key);
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+}
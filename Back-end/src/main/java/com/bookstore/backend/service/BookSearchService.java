@@ -0,0 +1,308 @@
+package com.bookstore.backend.service;
+
+import com.bookstore.backend.model.Book;
+import com.bookstore.backend.repository.BookRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory inverted index over the catalog, ranked with BM25.
+// Kept in sync by BookService on save/update/delete.
+@Service
+public class BookSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookSearchService.class);
+
+    // BM25 tuning
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // Prefix matches count for less than an exact term match
+    private static final double PREFIX_WEIGHT = 0.5;
+    private static final int MAX_PREFIX_EXPANSIONS = 50;
+
+    private static final double TITLE_WEIGHT = 3.0;
+    private static final double AUTHOR_WEIGHT = 2.0;
+    private static final double GENRE_WEIGHT = 1.5;
+    private static final double PUBLISHER_WEIGHT = 1.0;
+    private static final double DESCRIPTION_WEIGHT = 1.0;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Value("${startup.migrations.enabled:true}")
+    private boolean startupMigrations;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // term -> (bookId -> field-weighted term frequency)
+    private NavigableMap<String, Map<String, Double>> postings = new TreeMap<>();
+    // bookId -> terms it was indexed under, so updates touch only its own postings
+    private Map<String, Set<String>> docTerms = new HashMap<>();
+    // bookId -> weighted document length
+    private Map<String, Double> docLengths = new HashMap<>();
+    private double totalLength = 0;
+
+    // While a rebuild reads the catalog, index()/remove() also record their book here (null = removed)
+    // so the changes can be replayed onto the new index when it goes live; guarded by lock
+    private Map<String, Book> changesDuringRebuild;
+
+    // One rebuild at a time
+    private final Object rebuildLock = new Object();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildIndexOnStartup() {
+        if (!startupMigrations) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (Exception e) {
+            logger.error("Failed to build book search index: {}", e.getMessage());
+        }
+    }
+
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            lock.writeLock().lock();
+            try {
+                changesDuringRebuild = new LinkedHashMap<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            NavigableMap<String, Map<String, Double>> newPostings = new TreeMap<>();
+            Map<String, Set<String>> newDocTerms = new HashMap<>();
+            Map<String, Double> newDocLengths = new HashMap<>();
+            double newTotalLength = 0;
+            try {
+                for (Book book : bookRepository.findAll()) {
+                    newTotalLength += addDocument(book, newPostings, newDocTerms, newDocLengths);
+                }
+            } catch (RuntimeException e) {
+                lock.writeLock().lock();
+                try {
+                    changesDuringRebuild = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                throw e;
+            }
+
+            int replayed;
+            lock.writeLock().lock();
+            try {
+                postings = newPostings;
+                docTerms = newDocTerms;
+                docLengths = newDocLengths;
+                totalLength = newTotalLength;
+
+                // Writes that landed after findAll read their book would otherwise be lost
+                replayed = changesDuringRebuild.size();
+                for (Map.Entry<String, Book> change : changesDuringRebuild.entrySet()) {
+                    removeDocument(change.getKey());
+                    if (change.getValue() != null) {
+                        totalLength += addDocument(change.getValue(), postings, docTerms, docLengths);
+                    }
+                }
+                changesDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            logger.info("Book search index built: {} books, {} terms ({} changes replayed)", newDocLengths.size(),
+                    newPostings.size(), replayed);
+        }
+    }
+
+    public void index(Book book) {
+        if (book == null || book.getBook_id() == null) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeDocument(book.getBook_id());
+            totalLength += addDocument(book, postings, docTerms, docLengths);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.put(book.getBook_id(), book);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String bookId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(bookId);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.put(bookId, null);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Returns one page of matching book IDs, best match first
+    public SearchResult search(String queryText, int page, int size) {
+        List<String> queryTerms = tokenize(queryText);
+        if (queryTerms.isEmpty()) {
+            return new SearchResult(Collections.emptyList(), 0);
+        }
+
+        Map<String, Double> scores = new HashMap<>();
+
+        lock.readLock().lock();
+        try {
+            int docCount = docLengths.size();
+            if (docCount == 0) {
+                return new SearchResult(Collections.emptyList(), 0);
+            }
+            double avgLength = totalLength / docCount;
+
+            for (String queryTerm : new LinkedHashSet<>(queryTerms)) {
+                // Best contribution per book for this query term (exact or via prefix)
+                Map<String, Double> termScores = new HashMap<>();
+
+                scoreTerm(postings.get(queryTerm), 1.0, docCount, avgLength, termScores);
+
+                int expansions = 0;
+                for (Map.Entry<String, Map<String, Double>> entry : postings.tailMap(queryTerm, false).entrySet()) {
+                    if (!entry.getKey().startsWith(queryTerm) || expansions++ >= MAX_PREFIX_EXPANSIONS) {
+                        break;
+                    }
+                    scoreTerm(entry.getValue(), PREFIX_WEIGHT, docCount, avgLength, termScores);
+                }
+
+                termScores.forEach((bookId, score) -> scores.merge(bookId, score, Double::sum));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Map.Entry<String, Double>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort((a, b) -> {
+            int byScore = Double.compare(b.getValue(), a.getValue());
+            return byScore != 0 ? byScore : a.getKey().compareTo(b.getKey());
+        });
+
+        // long arithmetic: page * size overflows int for a large page
+        int from = (int) Math.min((long) page * size, ranked.size());
+        int to = Math.min(from + size, ranked.size());
+        List<String> bookIds = new ArrayList<>(to - from);
+        for (Map.Entry<String, Double> entry : ranked.subList(from, to)) {
+            bookIds.add(entry.getKey());
+        }
+
+        return new SearchResult(bookIds, ranked.size());
+    }
+
+    private void scoreTerm(Map<String, Double> termPostings, double weight, int docCount, double avgLength,
+            Map<String, Double> termScores) {
+        if (termPostings == null || termPostings.isEmpty()) {
+            return;
+        }
+
+        int docFrequency = termPostings.size();
+        double idf = Math.log(1 + (docCount - docFrequency + 0.5) / (docFrequency + 0.5));
+
+        for (Map.Entry<String, Double> posting : termPostings.entrySet()) {
+            double tf = posting.getValue();
+            double length = docLengths.getOrDefault(posting.getKey(), avgLength);
+            double score = weight * idf * (tf * (K1 + 1)) / (tf + K1 * (1 - B + B * length / avgLength));
+            termScores.merge(posting.getKey(), score, Math::max);
+        }
+    }
+
+    // Adds a book to the given structures and returns its weighted length
+    private double addDocument(Book book, NavigableMap<String, Map<String, Double>> targetPostings,
+            Map<String, Set<String>> targetDocTerms, Map<String, Double> targetDocLengths) {
+        Map<String, Double> termFrequencies = new HashMap<>();
+        addField(book.getTitle(), TITLE_WEIGHT, termFrequencies);
+        addField(book.getAuthor(), AUTHOR_WEIGHT, termFrequencies);
+        addField(book.getGenre(), GENRE_WEIGHT, termFrequencies);
+        addField(book.getPublisher(), PUBLISHER_WEIGHT, termFrequencies);
+        addField(book.getDescription(), DESCRIPTION_WEIGHT, termFrequencies);
+
+        double length = 0;
+        for (Map.Entry<String, Double> entry : termFrequencies.entrySet()) {
+            targetPostings.computeIfAbsent(entry.getKey(), term -> new HashMap<>())
+                    .put(book.getBook_id(), entry.getValue());
+            length += entry.getValue();
+        }
+        targetDocTerms.put(book.getBook_id(), new HashSet<>(termFrequencies.keySet()));
+        targetDocLengths.put(book.getBook_id(), length);
+        return length;
+    }
+
+    private void addField(String text, double weight, Map<String, Double> termFrequencies) {
+        for (String term : tokenize(text)) {
+            termFrequencies.merge(term, weight, Double::sum);
+        }
+    }
+
+    private void removeDocument(String bookId) {
+        Double length = docLengths.remove(bookId);
+        if (length == null) {
+            return;
+        }
+        totalLength -= length;
+
+        for (String term : docTerms.remove(bookId)) {
+            Map<String, Double> termPostings = postings.get(term);
+            if (termPostings != null) {
+                termPostings.remove(bookId);
+                if (termPostings.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    // Lower-cases, strips accents and splits on anything that is not a letter or digit
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return Collections.emptyList();
+        }
+
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}+", "")
+                .toLowerCase(Locale.ROOT);
+
+        List<String> tokens = new ArrayList<>();
+        for (String token : normalized.split("[^\\p{L}\\p{Nd}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    public static class SearchResult {
+        private final List<String> bookIds;
+        private final long totalHits;
+
+        public SearchResult(List<String> bookIds, long totalHits) {
+            this.bookIds = bookIds;
+            this.totalHits = totalHits;
+        }
+
+        public List<String> getBookIds() {
+            return bookIds;
+        }
+
+        public long getTotalHits() {
+            return totalHits;
+        }
+    }
+}
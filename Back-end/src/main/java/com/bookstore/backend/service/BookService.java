@@ -1,12 +1,24 @@
 package com.bookstore.backend.service;
 
+import com.bookstore.backend.dto.BookSearchResponse;
+import com.bookstore.backend.dto.BookUpdateRequest;
+import com.bookstore.backend.dto.CursorPage;
 import com.bookstore.backend.model.Book;
 import com.bookstore.backend.repository.BookRepository;
+import com.bookstore.backend.util.KeysetCursor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.Collections;
@@ -17,12 +29,36 @@ public class BookService {
     @Autowired
     private BookRepository bookRepository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private BookSearchService bookSearchService;
+
+    @Autowired
+    private BookCacheService bookCacheService;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    // Sort keys accepted by the paged listing, mapped to Book properties
+    private static final Map<String, String> PAGE_SORT_FIELDS = Map.of(
+            "id", "book_id",
+            "price", "price",
+            "rating", "rating",
+            "publishedDate", "publishedDate");
+
     // CREATE / SAVE
     public Book save(Book book) {
         if (book.getPrice() <= 0) {
             throw new IllegalArgumentException("Book price must be greater than zero.");
         }
-        return bookRepository.save(book);
+        Book savedBook = bookRepository.save(book);
+        bookCacheService.evict(savedBook.getBook_id());
+        bookSearchService.index(savedBook);
+        return savedBook;
     }
 
     // READ ALL
@@ -30,58 +66,157 @@ public class BookService {
         return bookRepository.findAll();
     }
 
+    // READ PAGE (keyset pagination on the sort key with _id as tie-breaker)
+    public CursorPage<Book> findPage(int pageSize, String cursor, String sortKey, Sort.Direction direction,
+            boolean includeDescription) {
+        String field = PAGE_SORT_FIELDS.get(sortKey);
+        if (field == null) {
+            throw new IllegalArgumentException("Unsupported sort key: " + sortKey);
+        }
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("pageSize must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        Query query = new Query();
+        if (cursor != null && !cursor.isEmpty()) {
+            query.addCriteria(KeysetCursor.decode(cursor, sortKey).after(field, "book_id", direction));
+        }
+        query.with(field.equals("book_id")
+                ? Sort.by(direction, "book_id")
+                : Sort.by(direction, field).and(Sort.by(direction, "book_id")));
+        query.limit(pageSize + 1); // one extra row tells us whether another page exists
+
+        if (!includeDescription) {
+            query.fields().exclude("description");
+        }
+
+        List<Book> books = mongoTemplate.find(query, Book.class);
+        boolean hasMore = books.size() > pageSize;
+        if (hasMore) {
+            books = books.subList(0, pageSize);
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            Book last = books.get(books.size() - 1);
+            nextCursor = KeysetCursor.encode(sortKey, pageSortValue(last, sortKey), last.getBook_id());
+        }
+
+        return new CursorPage<>(books, nextCursor, hasMore);
+    }
+
+    private Object pageSortValue(Book book, String sortKey) {
+        switch (sortKey) {
+            case "price":
+                return book.getPrice();
+            case "rating":
+                return book.getRating();
+            case "publishedDate":
+                return book.getPublishedDate();
+            default:
+                return book.getBook_id();
+        }
+    }
+
     // READ ONE
     public Optional<Book> findById(String id) {
-        return bookRepository.findById(id);
+        return bookCacheService.findById(id);
     }
 
-    // UPDATE
-    public Book update(String id, Book bookDetails) {
-        Optional<Book> bookOptional = bookRepository.findById(id);
-
-        if (bookOptional.isPresent()) {
-            Book existingBook = bookOptional.get();
-
-            // Update all fields, allowing for null values to preserve existing data
-            if (bookDetails.getTitle() != null)
-                existingBook.setTitle(bookDetails.getTitle());
-            if (bookDetails.getAuthor() != null)
-                existingBook.setAuthor(bookDetails.getAuthor());
-            if (bookDetails.getPrice() > 0)
-                existingBook.setPrice(bookDetails.getPrice());
-            if (bookDetails.getStockQuantity() >= 0)
-                existingBook.setStockQuantity(bookDetails.getStockQuantity());
-            if (bookDetails.getDescription() != null)
-                existingBook.setDescription(bookDetails.getDescription());
-            if (bookDetails.getGenre() != null)
-                existingBook.setGenre(bookDetails.getGenre());
-            if (bookDetails.getPublisher() != null)
-                existingBook.setPublisher(bookDetails.getPublisher());
-            if (bookDetails.getLanguage() != null)
-                existingBook.setLanguage(bookDetails.getLanguage());
-            if (bookDetails.getCoverImageUrl() != null)
-                existingBook.setCoverImageUrl(bookDetails.getCoverImageUrl());
-            if (bookDetails.getPublishedDate() != null)
-                existingBook.setPublishedDate(bookDetails.getPublishedDate());
-            if (bookDetails.getRating() != null)
-                existingBook.setRating(bookDetails.getRating());
-
-            return bookRepository.save(existingBook); // Save the updated data
-        } else {
-            throw new RuntimeException("Book not found with id: " + id);
+    // UPDATE (writes to the repository, cached books must not be modified)
+    public Book update(String id, BookUpdateRequest bookDetails) {
+        if (bookDetails.getPrice() != null && bookDetails.getPrice() <= 0) {
+            throw new IllegalArgumentException("Book price must be greater than zero.");
+        }
+        if (bookDetails.getStockQuantity() != null && bookDetails.getStockQuantity() < 0) {
+            throw new IllegalArgumentException("stockQuantity must be zero or more");
+        }
+
+        // $set only the supplied fields: the rating counters and reservedQuantity are moved by
+        // $inc elsewhere and a whole-document save would overwrite changes made since the read.
+        // rating is derived from the counters and is not editable here.
+        Update update = new Update();
+        if (bookDetails.getTitle() != null)
+            update.set("title", bookDetails.getTitle());
+        if (bookDetails.getAuthor() != null)
+            update.set("author", bookDetails.getAuthor());
+        if (bookDetails.getPrice() != null)
+            update.set("price", bookDetails.getPrice());
+        if (bookDetails.getDescription() != null)
+            update.set("description", bookDetails.getDescription());
+        if (bookDetails.getGenre() != null)
+            update.set("genre", bookDetails.getGenre());
+        if (bookDetails.getPublisher() != null)
+            update.set("publisher", bookDetails.getPublisher());
+        if (bookDetails.getLanguage() != null)
+            update.set("language", bookDetails.getLanguage());
+        if (bookDetails.getCoverImageUrl() != null)
+            update.set("coverImageUrl", bookDetails.getCoverImageUrl());
+        if (bookDetails.getPublishedDate() != null)
+            update.set("publishedDate", bookDetails.getPublishedDate());
+
+        Query query = new Query(Criteria.where("book_id").is(id));
+        Book savedBook = null;
+        if (!update.getUpdateObject().isEmpty()) {
+            savedBook = mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true),
+                    Book.class);
+            if (savedBook == null) {
+                throw new RuntimeException("Book not found with id: " + id);
+            }
+        }
+        // Stock goes through InventoryService, so stockStatus and the low-stock event follow the quantity
+        if (bookDetails.getStockQuantity() != null) {
+            savedBook = inventoryService.updateStock(id, bookDetails.getStockQuantity());
+        }
+        if (savedBook == null) {
+            savedBook = mongoTemplate.findOne(query, Book.class);
+            if (savedBook == null) {
+                throw new RuntimeException("Book not found with id: " + id);
+            }
         }
+
+        bookCacheService.evict(id);
+        bookSearchService.index(savedBook);
+        return savedBook;
     }
 
     // DELETE
     public void delete(String id) {
         bookRepository.deleteById(id);
+        bookCacheService.evict(id);
+        bookSearchService.remove(id);
+    }
+
+    // FULL-TEXT SEARCH (ranked from the in-memory index, then one lookup by _id for the page)
+    public BookSearchResponse search(String query, int page, int size) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query must not be empty");
+        }
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("page must be >= 0 and size between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        BookSearchService.SearchResult result = bookSearchService.search(query, page, size);
+
+        Map<String, Book> booksById = bookCacheService.findAllById(result.getBookIds());
+
+        // Keep the ranking order; skip IDs deleted since they were indexed
+        List<Book> books = new ArrayList<>();
+        for (String bookId : result.getBookIds()) {
+            Book book = booksById.get(bookId);
+            if (book != null) {
+                books.add(book);
+            }
+        }
+
+        return new BookSearchResponse(query, page, size, result.getTotalHits(), books);
     }
 
     // RECOMMENDATION METHODS
 
     // Get similar books based on genre and author
     public List<Book> getSimilarBooks(String bookId, int limit) {
-        Optional<Book> bookOpt = bookRepository.findById(bookId);
+        Optional<Book> bookOpt = bookCacheService.findById(bookId);
         if (!bookOpt.isPresent()) {
             return Collections.emptyList();
         }
@@ -0,0 +1,348 @@
+package com.bookstore.backend.service;
+
+import com.bookstore.backend.dto.ImportReport;
+import com.bookstore.backend.model.Book;
+import com.bookstore.backend.util.JsonChunkReader;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectReader;
+import tools.jackson.dataformat.csv.CsvMapper;
+import tools.jackson.dataformat.csv.CsvReadFeature;
+import tools.jackson.dataformat.csv.CsvSchema;
+
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Loads supplier catalogs (CSV with a header row, NDJSON or a JSON array) into books.
+// The file is parsed and validated one batch at a time. Each row is routed to one of a few
+// single-threaded workers by its match key, so all writes for one book come from one worker in
+// file order and two batches can never both insert the same book. At most two sub-batches per
+// worker are held in memory. Rows match existing books on isbn, or on title + author when the
+// row has no isbn.
+@Service
+public class CatalogImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogImportService.class);
+
+    public static final String FORMAT_CSV = "csv";
+    public static final String FORMAT_NDJSON = "ndjson";
+
+    private static final int MAX_REPORTED_REJECTS = 100;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private BookSearchService bookSearchService;
+
+    @Autowired
+    private BookCacheService bookCacheService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${catalog.import.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${catalog.import.parallelism:0}")
+    private int parallelism;
+
+    private final CsvMapper csvMapper = CsvMapper.builder()
+            .enable(CsvReadFeature.EMPTY_STRING_AS_NULL)
+            .enable(CsvReadFeature.TRIM_SPACES)
+            .enable(CsvReadFeature.SKIP_EMPTY_LINES)
+            .build();
+
+    public ImportReport importCatalog(InputStream body, String format) {
+        ObjectReader rowReader = rowReader(format);
+        int workers = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        int maxBatchesInFlight = workers * 2;
+
+        long startTime = System.currentTimeMillis();
+        ImportProgress progress = new ImportProgress();
+        ImportReport report = new ImportReport();
+        report.setFormat(format);
+
+        // One thread per worker: a worker runs its sub-batches one at a time, in file order
+        ExecutorService[] pools = new ExecutorService[workers];
+        for (int w = 0; w < workers; w++) {
+            String threadName = "catalog-import-" + (w + 1);
+            pools[w] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, threadName);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        // Parsing blocks here once the workers fall behind, so memory stays bounded by batch size
+        Semaphore inFlight = new Semaphore(maxBatchesInFlight);
+
+        try (JsonChunkReader<Map<String, Object>> reader = new JsonChunkReader<>(rowReader, body)) {
+            long firstRow = 1;
+            List<Map<String, Object>> batch;
+            while (!(batch = reader.nextChunk(batchSize)).isEmpty()) {
+                List<List<ImportRow>> partitions = partition(batch, firstRow, workers, progress);
+                for (int w = 0; w < workers; w++) {
+                    List<ImportRow> rows = partitions.get(w);
+                    if (rows.isEmpty()) {
+                        continue;
+                    }
+                    inFlight.acquireUninterruptibly();
+                    pools[w].execute(() -> {
+                        try {
+                            importBatch(rows, progress);
+                        } catch (RuntimeException e) {
+                            logger.error("Catalog import batch at row {} failed: {}", rows.get(0).rowNumber,
+                                    e.getMessage());
+                            for (ImportRow row : rows) {
+                                progress.reject(row.rowNumber, "Batch write failed: " + e.getMessage());
+                            }
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                }
+                firstRow += batch.size();
+            }
+            report.setRowsRead(firstRow - 1);
+            report.setError(reader.getError());
+        } finally {
+            // Wait for the batches still running before reporting
+            inFlight.acquireUninterruptibly(maxBatchesInFlight);
+            for (ExecutorService pool : pools) {
+                pool.shutdown();
+            }
+        }
+
+        if (progress.inserted.get() + progress.updated.get() > 0) {
+            // Upserts are keyed by isbn or title + author, so the changed ids are not known here
+            bookCacheService.clear();
+            try {
+                bookSearchService.rebuild();
+            } catch (RuntimeException e) {
+                logger.error("Search index rebuild after catalog import failed: {}", e.getMessage());
+            }
+        }
+
+        long elapsedMs = System.currentTimeMillis() - startTime;
+        report.setInserted(progress.inserted.get());
+        report.setUpdated(progress.updated.get());
+        report.setDuplicates(progress.duplicates.get());
+        report.setRejected(progress.rejected.get());
+        report.setRejects(new ArrayList<>(progress.rejects));
+        report.setElapsedMs(elapsedMs);
+        report.setRowsPerSecond(report.getRowsRead() * 1000 / Math.max(1, elapsedMs));
+
+        logger.info("Catalog import ({}): {} rows, {} inserted, {} updated, {} duplicates, {} rejected in {} ms ({} rows/s)",
+                format, report.getRowsRead(), report.getInserted(), report.getUpdated(), report.getDuplicates(),
+                report.getRejected(), elapsedMs, report.getRowsPerSecond());
+        return report;
+    }
+
+    private ObjectReader rowReader(String format) {
+        if (FORMAT_CSV.equalsIgnoreCase(format)) {
+            return csvMapper.readerFor(Map.class).with(CsvSchema.emptySchema().withHeader());
+        }
+        if (FORMAT_NDJSON.equalsIgnoreCase(format) || "json".equalsIgnoreCase(format)) {
+            return objectMapper.readerFor(Map.class);
+        }
+        throw new IllegalArgumentException("Unsupported import format: " + format + " (use csv or ndjson)");
+    }
+
+    // Validates a parsed batch and splits it by match key, so the same book always lands on the
+    // same worker. Invalid rows are rejected here.
+    private List<List<ImportRow>> partition(List<Map<String, Object>> batch, long firstRow, int workers,
+            ImportProgress progress) {
+        List<List<ImportRow>> partitions = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            partitions.add(new ArrayList<>());
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            try {
+                ImportRow row = toImportRow(batch.get(i), firstRow + i);
+                partitions.get(Math.floorMod(row.key.hashCode(), workers)).add(row);
+            } catch (IllegalArgumentException e) {
+                progress.reject(firstRow + i, e.getMessage());
+            }
+        }
+        return partitions;
+    }
+
+    private void importBatch(List<ImportRow> rows, ImportProgress progress) {
+        // Keep only the last row per book so unordered upserts cannot race each other
+        Map<String, ImportRow> lastRowByKey = new LinkedHashMap<>();
+        for (ImportRow row : rows) {
+            if (lastRowByKey.put(row.key, row) != null) {
+                progress.duplicates.incrementAndGet();
+            }
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Book.class);
+        List<ImportRow> opRows = new ArrayList<>(lastRowByKey.values());
+        for (ImportRow row : opRows) {
+            bulk.upsert(row.match, row.update);
+        }
+
+        BulkWriteResult result;
+        try {
+            result = bulk.execute();
+        } catch (BulkOperationException e) {
+            // Unordered: the other rows in the batch still went through
+            for (BulkWriteError error : e.getErrors()) {
+                progress.reject(opRows.get(error.getIndex()).rowNumber, error.getMessage());
+            }
+            result = e.getResult();
+        }
+        progress.inserted.addAndGet(result.getUpserts().size());
+        progress.updated.addAndGet(result.getMatchedCount());
+    }
+
+    // Same rules as BookService.save, plus the fields an upsert needs to find the book
+    private ImportRow toImportRow(Map<String, Object> row, long rowNumber) {
+        String title = text(row, "title");
+        String author = text(row, "author");
+        if (title == null) {
+            throw new IllegalArgumentException("title is required");
+        }
+        if (author == null) {
+            throw new IllegalArgumentException("author is required");
+        }
+        Double price = number(row, "price");
+        if (price == null || price <= 0) {
+            throw new IllegalArgumentException("Book price must be greater than zero.");
+        }
+        Double stock = number(row, "stockQuantity");
+        if (stock != null && (stock < 0 || stock != Math.floor(stock))) {
+            throw new IllegalArgumentException("stockQuantity must be a whole number, zero or more");
+        }
+        String isbn = text(row, "isbn");
+        if (isbn != null) {
+            isbn = isbn.replace("-", "").replace(" ", "");
+        }
+
+        Update update = new Update()
+                .set("title", title)
+                .set("author", author)
+                .set("price", price);
+        setIfPresent(update, "isbn", isbn);
+        setIfPresent(update, "description", text(row, "description"));
+        setIfPresent(update, "genre", text(row, "genre"));
+        setIfPresent(update, "publisher", text(row, "publisher"));
+        setIfPresent(update, "language", text(row, "language"));
+        setIfPresent(update, "coverImageUrl", text(row, "coverImageUrl"));
+        setIfPresent(update, "publishedDate", date(row, "publishedDate"));
+        if (stock != null) {
+            update.set("stockQuantity", stock.intValue())
+                    .set("stockStatus", InventoryService.determineStockStatus(stock.intValue()));
+        } else {
+            update.setOnInsert("stockQuantity", 0)
+                    .setOnInsert("stockStatus", InventoryService.determineStockStatus(0));
+        }
+        // New books start with the counters other services increment
+        update.setOnInsert("reservedQuantity", 0)
+                .setOnInsert("ratingSum", 0L)
+                .setOnInsert("ratingCount", 0L);
+
+        if (isbn != null) {
+            return new ImportRow(rowNumber, "isbn:" + isbn, new Query(Criteria.where("isbn").is(isbn)), update);
+        }
+        // Same exact (case-sensitive) title + author the upsert matches on, so within-batch dedup
+        // and cross-batch matching agree
+        return new ImportRow(rowNumber, "book:" + title + "\u0000" + author,
+                new Query(Criteria.where("title").is(title).and("author").is(author)), update);
+    }
+
+    private static String text(Map<String, Object> row, String field) {
+        Object value = row.get(field);
+        if (value == null) {
+            return null;
+        }
+        String text = value.toString().trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    private static Double number(Map<String, Object> row, String field) {
+        Object value = row.get(field);
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        String text = text(row, field);
+        if (text == null) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(field + " is not a number: " + text);
+        }
+    }
+
+    private static LocalDate date(Map<String, Object> row, String field) {
+        String text = text(row, field);
+        if (text == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(text);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(field + " must be yyyy-MM-dd: " + text);
+        }
+    }
+
+    private static void setIfPresent(Update update, String field, Object value) {
+        if (value != null) {
+            update.set(field, value);
+        }
+    }
+
+    private static class ImportRow {
+        private final long rowNumber; // 1-based position in the file, for rejects
+        private final String key; // Dedup key within a batch, and which worker writes the row
+        private final Query match;
+        private final Update update;
+
+        private ImportRow(long rowNumber, String key, Query match, Update update) {
+            this.rowNumber = rowNumber;
+            this.key = key;
+            this.match = match;
+            this.update = update;
+        }
+    }
+
+    // Shared by the worker threads of one import
+    private static class ImportProgress {
+        final AtomicLong inserted = new AtomicLong();
+        final AtomicLong updated = new AtomicLong();
+        final AtomicLong duplicates = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        final Queue<ImportReport.Reject> rejects = new ConcurrentLinkedQueue<>();
+
+        void reject(long row, String reason) {
+            if (rejected.incrementAndGet() <= MAX_REPORTED_REJECTS) {
+                rejects.add(new ImportReport.Reject(row, reason));
+            }
+        }
+    }
+}
@@ -1,30 +1,103 @@
 package com.bookstore.backend.service;
 
+import com.bookstore.backend.dto.ConversationSummary;
+import com.bookstore.backend.dto.CursorPage;
 import com.bookstore.backend.model.Conversation;
+import com.bookstore.backend.model.ConversationStats;
 import com.bookstore.backend.dto.ConversationRequest;
 import com.bookstore.backend.dto.MessageRequest;
+import com.bookstore.backend.event.ConversationUpdatedEvent;
+import com.bookstore.backend.model.MessageBucket;
 import com.bookstore.backend.repository.ConversationRepository;
+import com.bookstore.backend.util.KeysetCursor;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
+// Conversation documents hold the header (subject, status, counters, last message); the messages
+// themselves are appended with $push to MessageBucket documents, so a reply never rewrites the thread.
+// Unread counters are kept on the header (and summed in ConversationStats) rather than derived
+// from the messages. Every change is published as a ConversationUpdatedEvent for the live stream.
 @Service
 @RequiredArgsConstructor
 @Transactional
 public class ConversationService {
 
+    private static final Logger logger = LoggerFactory.getLogger(ConversationService.class);
+
+    // Latest messages returned with a conversation, and the largest page of /messages
+    public static final int DEFAULT_MESSAGE_PAGE_SIZE = 50;
+    public static final int MAX_MESSAGE_PAGE_SIZE = 100;
+
+    public static final int MAX_INBOX_PAGE_SIZE = 100;
+
+    private static final String INBOX_SORT_KEY = "lastMessageAt";
+
     private final ConversationRepository conversationRepository;
 
+    private final MongoTemplate mongoTemplate;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ConversationStatsService conversationStatsService;
+
+    @Value("${startup.migrations.enabled:true}")
+    private boolean startupMigrations;
+
+    // The unread lists and totals only see converted conversations, so convert the rest up front
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateLegacyConversations() {
+        if (!startupMigrations) {
+            return;
+        }
+        try {
+            Query query = new Query(Criteria.where("messageCount").exists(false));
+            query.fields().include("conversationId");
+
+            int converted = 0;
+            for (Conversation legacy : mongoTemplate.find(query, Conversation.class)) {
+                migrateLegacyMessages(legacy.getConversationId());
+                converted++;
+            }
+            if (converted > 0) {
+                logger.info("Converted {} conversations to message buckets", converted);
+            }
+            conversationStatsService.rebuild();
+        } catch (Exception e) {
+            logger.error("Failed to prepare conversation unread counters: {}", e.getMessage());
+        }
+    }
+
     public Conversation createConversation(ConversationRequest request) {
         Conversation conversation = new Conversation();
         conversation.setConversationId(UUID.randomUUID().toString());
         conversation.setUserEmail(request.getEmail());
         conversation.setUserName(request.getName());
         conversation.setSubject(request.getSubject());
+        conversation.setMessageCount(0L);
+        conversationRepository.save(conversation);
 
         Conversation.Message initialMessage = new Conversation.Message(
                 "USER",
@@ -32,13 +105,14 @@ public class ConversationService {
                 request.getMessage());
         initialMessage.setMessageId(UUID.randomUUID().toString());
 
-        conversation.setMessages(List.of(initialMessage));
-
-        return conversationRepository.save(conversation);
+        Conversation header = appendMessage(conversation.getConversationId(), initialMessage);
+        header.setMessages(List.of(initialMessage));
+        return header;
     }
 
+    // Returns the conversation header with just the new message
     public Conversation addMessage(String conversationId, MessageRequest request, String sender) {
-        Conversation conversation = getConversationById(conversationId);
+        Conversation conversation = getConversationHeader(conversationId);
 
         Conversation.Message newMessage = new Conversation.Message(
                 sender,
@@ -46,18 +120,88 @@ public class ConversationService {
                 request.getContent());
         newMessage.setMessageId(UUID.randomUUID().toString());
 
-        conversation.addMessage(newMessage);
-
-        return conversationRepository.save(conversation);
+        Conversation header = appendMessage(conversationId, newMessage);
+        header.setMessages(List.of(newMessage));
+        return header;
     }
 
+    // The header plus its latest messages, oldest first; older ones via getMessages
     public Conversation getConversationById(String conversationId) {
-        return conversationRepository.findById(conversationId)
-                .orElseThrow(() -> new RuntimeException("Conversation not found"));
+        Conversation conversation = getConversationHeader(conversationId);
+        long end = conversation.getMessageCount();
+        List<Conversation.Message> latest = readMessages(conversationId,
+                Math.max(0, end - DEFAULT_MESSAGE_PAGE_SIZE), end);
+        Collections.reverse(latest);
+        conversation.setMessages(latest);
+        return conversation;
+    }
+
+    // One page of messages, newest first. The cursor is the seq the next (older) page ends before.
+    public CursorPage<Conversation.Message> getMessages(String conversationId, String cursor, int pageSize) {
+        if (pageSize < 1 || pageSize > MAX_MESSAGE_PAGE_SIZE) {
+            throw new IllegalArgumentException("pageSize must be between 1 and " + MAX_MESSAGE_PAGE_SIZE);
+        }
+        Conversation conversation = getConversationHeader(conversationId);
+
+        long end = conversation.getMessageCount();
+        if (cursor != null && !cursor.isEmpty()) {
+            try {
+                end = Math.min(end, Long.parseLong(cursor));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+        long start = Math.max(0, end - pageSize);
+
+        List<Conversation.Message> messages = readMessages(conversationId, start, end);
+        boolean hasMore = start > 0;
+        return new CursorPage<>(messages, hasMore ? String.valueOf(start) : null, hasMore);
     }
 
+    // Headers only, most recent activity first; the admin list pages through getInbox instead
     public List<Conversation> getAllConversations() {
-        return conversationRepository.findAll();
+        Query query = new Query().with(Sort.by(Sort.Direction.DESC, "lastMessageAt"));
+        query.fields().exclude("messages");
+        return mongoTemplate.find(query, Conversation.class);
+    }
+
+    // Admin inbox page, most recent activity first (conversationId breaks ties), optionally one
+    // status. Only the summary fields are read, served by the (status,) lastMessageAt, _id indexes.
+    public CursorPage<ConversationSummary> getInbox(String status, String cursor, int pageSize) {
+        if (pageSize < 1 || pageSize > MAX_INBOX_PAGE_SIZE) {
+            throw new IllegalArgumentException("pageSize must be between 1 and " + MAX_INBOX_PAGE_SIZE);
+        }
+
+        Query query = new Query();
+        if (status != null && !status.isEmpty()) {
+            query.addCriteria(Criteria.where("status").is(status));
+        }
+        if (cursor != null && !cursor.isEmpty()) {
+            query.addCriteria(KeysetCursor.decode(cursor, INBOX_SORT_KEY)
+                    .after("lastMessageAt", "conversationId", Sort.Direction.DESC));
+        }
+        query.with(Sort.by(Sort.Direction.DESC, "lastMessageAt").and(Sort.by(Sort.Direction.DESC, "conversationId")));
+        query.limit(pageSize + 1); // one extra row tells us whether another page exists
+        query.fields().include("userEmail", "userName", "subject", "status", "lastMessageAt", "lastMessageBy",
+                "unreadByAdmin");
+
+        List<Conversation> conversations = mongoTemplate.find(query, Conversation.class);
+        boolean hasMore = conversations.size() > pageSize;
+        if (hasMore) {
+            conversations = conversations.subList(0, pageSize);
+        }
+
+        List<ConversationSummary> summaries = new ArrayList<>();
+        for (Conversation conversation : conversations) {
+            summaries.add(toSummary(conversation));
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            Conversation last = conversations.get(conversations.size() - 1);
+            nextCursor = KeysetCursor.encode(INBOX_SORT_KEY, last.getLastMessageAt(), last.getConversationId());
+        }
+        return new CursorPage<>(summaries, nextCursor, hasMore);
     }
 
     public List<Conversation> getConversationsByStatus(String status) {
@@ -76,6 +220,10 @@ public class ConversationService {
         return conversationRepository.findConversationsWithUnreadAdminMessages();
     }
 
+    public ConversationStats getUnreadCounts() {
+        return conversationStatsService.getUnreadCounts();
+    }
+
     public List<Conversation> getUserConversations(String userEmail) {
         return conversationRepository.findByUserEmailOrderByLastMessageAtDesc(userEmail);
     }
@@ -85,44 +233,269 @@ public class ConversationService {
     }
 
     public Conversation closeConversation(String conversationId) {
-        Conversation conversation = getConversationById(conversationId);
-        conversation.markAsClosed();
-        return conversationRepository.save(conversation);
+        return setStatus(conversationId, "CLOSED");
     }
 
     public Conversation reopenConversation(String conversationId) {
-        Conversation conversation = getConversationById(conversationId);
-        conversation.markAsActive();
-        return conversationRepository.save(conversation);
+        return setStatus(conversationId, "ACTIVE");
     }
 
     public void deleteConversation(String conversationId) {
-        if (!conversationRepository.existsById(conversationId)) {
+        Conversation header = mongoTemplate.findAndRemove(headerQuery(conversationId), Conversation.class);
+        if (header == null) {
             throw new RuntimeException("Conversation not found");
         }
-        conversationRepository.deleteById(conversationId);
+        if (header.getMessageCount() != null) {
+            conversationStatsService.conversationRemoved(header.getUnreadByAdmin(), header.getUnreadByUser());
+        }
+        mongoTemplate.remove(new Query(Criteria.where("conversationId").is(conversationId)), MessageBucket.class);
     }
 
+    // Bucketed conversations first, then any not yet moved to buckets
     public List<Conversation> searchConversations(String keyword) {
-        return conversationRepository.findByMessageContentContaining(keyword);
+        Query query = new Query(Criteria.where("messages.content").regex(keyword, "i"));
+        List<Conversation> conversations = headers(
+                mongoTemplate.findDistinct(query, "conversationId", MessageBucket.class, String.class));
+        conversations.addAll(conversationRepository.findByMessageContentContaining(keyword));
+        return conversations;
     }
 
-    public Conversation markMessagesAsRead(String conversationId, String sender) {
-        Conversation conversation = getConversationById(conversationId);
+    // Marks the other side's unread messages as read for the reader (the "sender" param) and
+    // returns how many there were. The reader's unread counter is taken and zeroed first, then one
+    // array-filtered update flips the messages in place in every bucket that has any.
+    // A reply landing in between is marked read but stays counted until the next call.
+    public int markMessagesAsRead(String conversationId, String sender) {
+        getConversationHeader(conversationId);
 
-        conversation.getMessages().stream()
-                .filter(message -> !message.getSender().equals(sender))
-                .forEach(Conversation.Message::markAsRead);
+        String counter = unreadCounter(sender);
+        Conversation header = mongoTemplate.findAndModify(headerQuery(conversationId), new Update().set(counter, 0),
+                Conversation.class);
+        if (header == null) {
+            throw new RuntimeException("Conversation not found");
+        }
+        int markedRead;
+        if ("ADMIN".equals(sender)) {
+            markedRead = header.getUnreadByAdmin();
+            header.setUnreadByAdmin(0);
+        } else {
+            markedRead = header.getUnreadByUser();
+            header.setUnreadByUser(0);
+        }
+
+        Criteria unreadFromOtherSide = Criteria.where("sender").ne(sender).and("read").is(false);
+        mongoTemplate.updateMulti(
+                new Query(Criteria.where("conversationId").is(conversationId)
+                        .and("messages").elemMatch(unreadFromOtherSide)),
+                new Update().set("messages.$[m].read", true)
+                        .filterArray(Criteria.where("m.sender").ne(sender).and("m.read").is(false)),
+                MessageBucket.class);
 
-        return conversationRepository.save(conversation);
+        if (markedRead > 0) {
+            conversationStatsService.messagesRead(sender, markedRead);
+            eventPublisher.publishEvent(ConversationUpdatedEvent.messagesRead(header, sender, markedRead));
+        }
+        return markedRead;
     }
 
     public boolean isParticipant(String conversationId, String userEmail) {
         try {
-            Conversation conversation = getConversationById(conversationId);
+            Conversation conversation = getConversationHeader(conversationId);
             return conversation.getUserEmail().equals(userEmail);
         } catch (RuntimeException e) {
             return false;
         }
     }
+
+    // Header fields only; a conversation stored before bucketing is converted on first touch
+    private Conversation getConversationHeader(String conversationId) {
+        Conversation header = mongoTemplate.findOne(headerQuery(conversationId), Conversation.class);
+        if (header == null) {
+            throw new RuntimeException("Conversation not found");
+        }
+        if (header.getMessageCount() == null) {
+            header = migrateLegacyMessages(conversationId);
+        }
+        return header;
+    }
+
+    // Takes the next seq from the header's messageCount, then $pushes into the bucket that seq
+    // belongs to (creating it on the first message). If the push fails the seq is skipped.
+    private Conversation appendMessage(String conversationId, Conversation.Message message) {
+        Query query = new Query(Criteria.where("conversationId").is(conversationId).and("messageCount").exists(true));
+        query.fields().exclude("messages");
+        String reader = otherSide(message.getSender());
+        Update update = new Update()
+                .inc("messageCount", 1)
+                .inc(unreadCounter(reader), 1)
+                .max("lastMessageAt", message.getCreatedAt())
+                .set("lastMessageBy", message.getSender())
+                .set("lastMessageId", message.getMessageId());
+
+        Conversation header = mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), Conversation.class);
+        if (header == null) {
+            throw new RuntimeException("Conversation not found");
+        }
+
+        conversationStatsService.messageAdded(reader,
+                "ADMIN".equals(reader) ? header.getUnreadByAdmin() : header.getUnreadByUser());
+
+        long seq = header.getMessageCount() - 1;
+        long bucketNo = MessageBucket.bucketNo(seq);
+        message.setSeq(seq);
+
+        mongoTemplate.upsert(new Query(Criteria.where("bucketId").is(MessageBucket.bucketId(conversationId, bucketNo))),
+                new Update()
+                        .push("messages", message)
+                        .inc("count", 1)
+                        .min("firstMessageAt", message.getCreatedAt())
+                        .max("lastMessageAt", message.getCreatedAt())
+                        .setOnInsert("conversationId", conversationId)
+                        .setOnInsert("bucketNo", bucketNo),
+                MessageBucket.class);
+
+        eventPublisher.publishEvent(ConversationUpdatedEvent.messageAdded(header, message));
+        return header;
+    }
+
+    // Messages with from <= seq < to, newest first, from the one or two buckets that hold them
+    private List<Conversation.Message> readMessages(String conversationId, long from, long to) {
+        List<Conversation.Message> messages = new ArrayList<>();
+        if (to <= from) {
+            return messages;
+        }
+
+        List<String> bucketIds = new ArrayList<>();
+        for (long bucketNo = MessageBucket.bucketNo(to - 1); bucketNo >= MessageBucket.bucketNo(from); bucketNo--) {
+            bucketIds.add(MessageBucket.bucketId(conversationId, bucketNo));
+        }
+
+        for (MessageBucket bucket : mongoTemplate.find(new Query(Criteria.where("bucketId").in(bucketIds)),
+                MessageBucket.class)) {
+            for (Conversation.Message message : bucket.getMessages()) {
+                if (message.getSeq() >= from && message.getSeq() < to) {
+                    messages.add(message);
+                }
+            }
+        }
+        messages.sort(Comparator.comparingLong(Conversation.Message::getSeq).reversed());
+        return messages;
+    }
+
+    // Copies the embedded messages into buckets, then sets messageCount and drops the array.
+    // Buckets are only inserted (never replaced) and the header change only applies once, so two
+    // requests converting the same conversation cannot lose a reply added in between.
+    private Conversation migrateLegacyMessages(String conversationId) {
+        Conversation legacy = conversationRepository.findById(conversationId)
+                .orElseThrow(() -> new RuntimeException("Conversation not found"));
+        if (legacy.getMessageCount() != null) {
+            legacy.setMessages(null);
+            return legacy;
+        }
+
+        List<Conversation.Message> messages = legacy.getMessages() != null ? legacy.getMessages() : List.of();
+        Map<Long, List<Conversation.Message>> messagesByBucket = new LinkedHashMap<>();
+        int unreadByAdmin = 0;
+        int unreadByUser = 0;
+        for (int seq = 0; seq < messages.size(); seq++) {
+            Conversation.Message message = messages.get(seq);
+            message.setSeq(seq);
+            if (message.getMessageId() == null) {
+                message.setMessageId(UUID.randomUUID().toString());
+            }
+            if (!Boolean.TRUE.equals(message.getRead())) {
+                if ("ADMIN".equals(otherSide(message.getSender()))) {
+                    unreadByAdmin++;
+                } else {
+                    unreadByUser++;
+                }
+            }
+            messagesByBucket.computeIfAbsent(MessageBucket.bucketNo(seq), bucketNo -> new ArrayList<>()).add(message);
+        }
+
+        if (!messagesByBucket.isEmpty()) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MessageBucket.class);
+            for (Map.Entry<Long, List<Conversation.Message>> entry : messagesByBucket.entrySet()) {
+                List<Conversation.Message> bucketMessages = entry.getValue();
+                bulk.upsert(new Query(Criteria.where("bucketId").is(MessageBucket.bucketId(conversationId, entry.getKey()))),
+                        new Update()
+                                .setOnInsert("conversationId", conversationId)
+                                .setOnInsert("bucketNo", entry.getKey())
+                                .setOnInsert("count", bucketMessages.size())
+                                .setOnInsert("firstMessageAt", bucketMessages.get(0).getCreatedAt())
+                                .setOnInsert("lastMessageAt", bucketMessages.get(bucketMessages.size() - 1).getCreatedAt())
+                                .setOnInsert("messages", bucketMessages));
+            }
+            bulk.execute();
+        }
+
+        Update update = new Update()
+                .set("messageCount", (long) messages.size())
+                .set("unreadByAdmin", unreadByAdmin)
+                .set("unreadByUser", unreadByUser)
+                .unset("messages");
+        if (!messages.isEmpty()) {
+            update.set("lastMessageId", messages.get(messages.size() - 1).getMessageId());
+        }
+        Query pending = new Query(Criteria.where("conversationId").is(conversationId).and("messageCount").exists(false));
+        Conversation header = mongoTemplate.findAndModify(pending, update,
+                FindAndModifyOptions.options().returnNew(true), Conversation.class);
+        if (header == null) {
+            // Another request finished the conversion first
+            header = mongoTemplate.findOne(headerQuery(conversationId), Conversation.class);
+        } else {
+            conversationStatsService.conversationConverted(unreadByAdmin, unreadByUser);
+            logger.info("Moved {} messages of conversation {} into buckets", messages.size(), conversationId);
+        }
+        return header;
+    }
+
+    private Conversation setStatus(String conversationId, String status) {
+        Conversation header = mongoTemplate.findAndModify(headerQuery(conversationId),
+                new Update().set("status", status), FindAndModifyOptions.options().returnNew(true), Conversation.class);
+        if (header == null) {
+            throw new RuntimeException("Conversation not found");
+        }
+        eventPublisher.publishEvent(ConversationUpdatedEvent.statusChanged(header));
+        return header;
+    }
+
+    private static ConversationSummary toSummary(Conversation conversation) {
+        ConversationSummary summary = new ConversationSummary();
+        summary.setConversationId(conversation.getConversationId());
+        summary.setUserEmail(conversation.getUserEmail());
+        summary.setUserName(conversation.getUserName());
+        summary.setSubject(conversation.getSubject());
+        summary.setStatus(conversation.getStatus());
+        summary.setLastMessageAt(conversation.getLastMessageAt());
+        summary.setLastMessageBy(conversation.getLastMessageBy());
+        summary.setUnreadByAdmin(conversation.getUnreadByAdmin());
+        return summary;
+    }
+
+    // Messages from one side are unread by the other: USER messages count in unreadByAdmin and
+    // ADMIN messages in unreadByUser
+    private static String otherSide(String sender) {
+        return "ADMIN".equals(sender) ? "USER" : "ADMIN";
+    }
+
+    private static String unreadCounter(String reader) {
+        return "ADMIN".equals(reader) ? "unreadByAdmin" : "unreadByUser";
+    }
+
+    private List<Conversation> headers(Collection<String> conversationIds) {
+        if (conversationIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Query query = new Query(Criteria.where("conversationId").in(conversationIds))
+                .with(Sort.by(Sort.Direction.DESC, "lastMessageAt"));
+        query.fields().exclude("messages");
+        return new ArrayList<>(mongoTemplate.find(query, Conversation.class));
+    }
+
+    private static Query headerQuery(String conversationId) {
+        Query query = new Query(Criteria.where("conversationId").is(conversationId));
+        query.fields().exclude("messages");
+        return query;
+    }
 }
@@ -0,0 +1,125 @@
+package com.bookstore.backend.service;
+
+import com.bookstore.backend.model.Conversation;
+import com.bookstore.backend.model.ConversationStats;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
+
+// Keeps the single ConversationStats document in step with the conversation counters, so the
+// unread badge is one _id lookup. ConversationService reports each counter change; rebuild()
+// recomputes the totals from the conversation headers (at startup, after legacy conversion).
+@Service
+public class ConversationStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationStatsService.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    public ConversationStats getUnreadCounts() {
+        ConversationStats stats = mongoTemplate.findById(ConversationStats.UNREAD, ConversationStats.class);
+        if (stats == null) {
+            stats = new ConversationStats();
+            stats.setStatsId(ConversationStats.UNREAD);
+        }
+        return stats;
+    }
+
+    // unreadNow is the reader's counter after the $inc; 1 means the conversation just became unread
+    public void messageAdded(String reader, int unreadNow) {
+        Update update = new Update().inc(messagesField(reader), 1);
+        if (unreadNow == 1) {
+            update.inc(conversationsField(reader), 1);
+        }
+        apply(update);
+    }
+
+    // markedRead is the reader's counter before it was zeroed
+    public void messagesRead(String reader, int markedRead) {
+        if (markedRead <= 0) {
+            return;
+        }
+        apply(new Update()
+                .inc(messagesField(reader), -markedRead)
+                .inc(conversationsField(reader), -1));
+    }
+
+    // A conversation converted from embedded messages starts counting with its existing unread
+    public void conversationConverted(int unreadByAdmin, int unreadByUser) {
+        apply(conversationDelta(unreadByAdmin, unreadByUser, 1));
+    }
+
+    public void conversationRemoved(int unreadByAdmin, int unreadByUser) {
+        apply(conversationDelta(unreadByAdmin, unreadByUser, -1));
+    }
+
+    // One $group pass over the headers' counters
+    public ConversationStats rebuild() {
+        AggregationExpression adminUnread = ComparisonOperators.Gt.valueOf("unreadByAdmin").greaterThanValue(0);
+        AggregationExpression userUnread = ComparisonOperators.Gt.valueOf("unreadByUser").greaterThanValue(0);
+
+        Document totals = mongoTemplate.aggregate(newAggregation(
+                match(Criteria.where("messageCount").exists(true)),
+                project("unreadByAdmin", "unreadByUser"),
+                group()
+                        .sum(ConditionalOperators.when(adminUnread).then(1).otherwise(0)).as("conversationsUnreadByAdmin")
+                        .sum("unreadByAdmin").as("messagesUnreadByAdmin")
+                        .sum(ConditionalOperators.when(userUnread).then(1).otherwise(0)).as("conversationsUnreadByUser")
+                        .sum("unreadByUser").as("messagesUnreadByUser")),
+                Conversation.class, Document.class).getUniqueMappedResult();
+
+        ConversationStats stats = new ConversationStats();
+        stats.setStatsId(ConversationStats.UNREAD);
+        if (totals != null) {
+            stats.setConversationsUnreadByAdmin(longValue(totals, "conversationsUnreadByAdmin"));
+            stats.setMessagesUnreadByAdmin(longValue(totals, "messagesUnreadByAdmin"));
+            stats.setConversationsUnreadByUser(longValue(totals, "conversationsUnreadByUser"));
+            stats.setMessagesUnreadByUser(longValue(totals, "messagesUnreadByUser"));
+        }
+        stats.setRebuiltAt(LocalDateTime.now());
+        mongoTemplate.save(stats);
+        logger.info("Conversation unread totals rebuilt: {} conversations / {} messages unread by admin",
+                stats.getConversationsUnreadByAdmin(), stats.getMessagesUnreadByAdmin());
+        return stats;
+    }
+
+    private void apply(Update update) {
+        mongoTemplate.upsert(new Query(Criteria.where("statsId").is(ConversationStats.UNREAD)), update,
+                ConversationStats.class);
+    }
+
+    private static Update conversationDelta(int unreadByAdmin, int unreadByUser, int sign) {
+        return new Update()
+                .inc("messagesUnreadByAdmin", sign * unreadByAdmin)
+                .inc("messagesUnreadByUser", sign * unreadByUser)
+                .inc("conversationsUnreadByAdmin", unreadByAdmin > 0 ? sign : 0)
+                .inc("conversationsUnreadByUser", unreadByUser > 0 ? sign : 0);
+    }
+
+    private static String messagesField(String reader) {
+        return "ADMIN".equals(reader) ? "messagesUnreadByAdmin" : "messagesUnreadByUser";
+    }
+
+    private static String conversationsField(String reader) {
+        return "ADMIN".equals(reader) ? "conversationsUnreadByAdmin" : "conversationsUnreadByUser";
+    }
+
+    private static long longValue(Document document, String key) {
+        Object value = document.get(key);
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+}
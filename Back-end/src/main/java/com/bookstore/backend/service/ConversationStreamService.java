@@ -0,0 +1,323 @@
+package com.bookstore.backend.service;
+
+import com.bookstore.backend.event.ConversationUpdatedEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Server-sent events for conversation changes, so the inbox and chat widget stop polling.
+// Admins receive every conversation, users only their own (optionally a single conversation).
+// Events go through a small bounded queue per client and are written by a sender pool, so a slow
+// client never blocks ConversationService. A client whose queue overflows gets its backlog replaced
+// by one RESYNC event. Every event carries an id; a client reconnecting with Last-Event-ID gets the
+// events it missed from a short history, or RESYNC when they are no longer there.
+// Clients are only dropped when a write fails or stalls past the send timeout.
+@Service
+public class ConversationStreamService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationStreamService.class);
+
+    private static final Object HEARTBEAT = new Object();
+
+    // Ids are "<epoch>-<seq>"; an id from before a restart never matches the history
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    @Value("${conversations.stream.max-clients:1000}")
+    private int maxClients;
+
+    @Value("${conversations.stream.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${conversations.stream.sender-threads:32}")
+    private int senderThreads;
+
+    @Value("${conversations.stream.send-timeout-ms:10000}")
+    private long sendTimeoutMs;
+
+    @Value("${conversations.stream.replay-history:1000}")
+    private int replayHistory;
+
+    @Value("${conversations.stream.max-connection-ms:1800000}")
+    private long maxConnectionMs;
+
+    private final Map<String, Subscriber> subscribers = new ConcurrentHashMap<>();
+
+    // Open streams, reserved before a subscriber is registered so the cap holds under concurrent connects
+    private final AtomicInteger clientCount = new AtomicInteger();
+
+    // Recent events for Last-Event-ID replay, oldest first; also serializes routing so every
+    // client receives events in id order
+    private final Deque<StreamEvent> history = new ArrayDeque<>();
+    private long lastSeq = 0;
+
+    private ThreadPoolExecutor sender;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        // Up to senderThreads writers, idle ones exit; a client stuck in a write holds only its own thread
+        sender = new ThreadPoolExecutor(senderThreads, senderThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "conversation-stream-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        sender.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        for (Subscriber subscriber : subscribers.values()) {
+            subscriber.emitter.complete();
+        }
+        subscribers.clear();
+        clientCount.set(0);
+        sender.shutdownNow();
+    }
+
+    // conversationId is optional; admins see all conversations, users only those under their email.
+    // lastEventId is the Last-Event-ID header an EventSource sends when it reconnects.
+    public SseEmitter subscribe(String userEmail, boolean admin, String conversationId, String lastEventId) {
+        reserveSlot();
+
+        SseEmitter emitter = new SseEmitter(maxConnectionMs);
+        Subscriber subscriber = new Subscriber(UUID.randomUUID().toString(), emitter, userEmail, admin,
+                conversationId, queueCapacity);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> {
+            remove(subscriber);
+            emitter.complete();
+        });
+        emitter.onError(error -> remove(subscriber));
+
+        synchronized (history) {
+            subscribers.put(subscriber.id, subscriber);
+            // First write commits the response so the client sees the stream open straight away
+            enqueue(subscriber, HEARTBEAT);
+            if (lastEventId != null && !lastEventId.isBlank()) {
+                replaySince(subscriber, lastEventId);
+            }
+        }
+        return emitter;
+    }
+
+    public int getClientCount() {
+        return clientCount.get();
+    }
+
+    // Runs on the publishing request's thread: only routes and enqueues, never writes
+    @EventListener
+    public void onConversationUpdated(ConversationUpdatedEvent event) {
+        synchronized (history) {
+            StreamEvent streamEvent = new StreamEvent(++lastSeq, event);
+            history.addLast(streamEvent);
+            while (history.size() > replayHistory) {
+                history.removeFirst();
+            }
+
+            for (Subscriber subscriber : subscribers.values()) {
+                if (subscriber.wants(event)) {
+                    enqueue(subscriber, streamEvent);
+                }
+            }
+        }
+    }
+
+    // Heartbeats find dead connections (the write fails) and keep proxies from closing quiet ones.
+    // Quiet clients stay connected; a client whose write has been stuck past the send timeout is
+    // dropped so no more work is queued for it.
+    @Scheduled(fixedDelayString = "${conversations.stream.heartbeat-ms:25000}",
+            initialDelayString = "${conversations.stream.heartbeat-ms:25000}")
+    public void heartbeatAndDropStalled() {
+        long now = System.currentTimeMillis();
+        int dropped = 0;
+        for (Subscriber subscriber : subscribers.values()) {
+            long sendStartedAt = subscriber.sendStartedAt;
+            if (sendStartedAt != 0 && now - sendStartedAt > sendTimeoutMs) {
+                // The sender thread still owns the emitter; it completes it once the write returns
+                remove(subscriber);
+                subscriber.queue.clear();
+                dropped++;
+            } else {
+                enqueue(subscriber, HEARTBEAT);
+            }
+        }
+        if (dropped > 0) {
+            logger.warn("Dropped {} conversation streams stuck in a write, {} still open", dropped,
+                    clientCount.get());
+        }
+    }
+
+    private void reserveSlot() {
+        while (true) {
+            int current = clientCount.get();
+            if (current >= maxClients) {
+                throw new IllegalStateException("Too many open conversation streams");
+            }
+            if (clientCount.compareAndSet(current, current + 1)) {
+                return;
+            }
+        }
+    }
+
+    // Frees the slot once, however many of the completion / error / timeout paths run
+    private void remove(Subscriber subscriber) {
+        subscribers.remove(subscriber.id);
+        if (subscriber.slotHeld.compareAndSet(true, false)) {
+            clientCount.decrementAndGet();
+        }
+    }
+
+    // Called under the history lock, so no event can be routed between the replay and registration
+    private void replaySince(Subscriber subscriber, String lastEventId) {
+        Long after = parseSeq(lastEventId);
+        long oldestKept = history.isEmpty() ? lastSeq + 1 : history.peekFirst().seq;
+        if (after == null || after > lastSeq || after < oldestKept - 1) {
+            enqueue(subscriber, ConversationUpdatedEvent.resync());
+            return;
+        }
+        for (StreamEvent streamEvent : history) {
+            if (streamEvent.seq > after && subscriber.wants(streamEvent.event)) {
+                enqueue(subscriber, streamEvent);
+            }
+        }
+    }
+
+    // null for an id from another epoch (restart) or one that does not parse
+    private Long parseSeq(String eventId) {
+        int dash = eventId.lastIndexOf('-');
+        if (dash < 0 || !epoch.equals(eventId.substring(0, dash))) {
+            return null;
+        }
+        try {
+            return Long.parseLong(eventId.substring(dash + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void enqueue(Subscriber subscriber, Object item) {
+        if (!subscriber.queue.offer(item)) {
+            if (item == HEARTBEAT) {
+                return; // the queued events will show the connection is alive
+            }
+            // Client is not keeping up: drop its backlog and have it reload instead
+            subscriber.queue.clear();
+            subscriber.queue.offer(ConversationUpdatedEvent.resync());
+            logger.warn("Conversation stream {} fell behind, sent RESYNC", subscriber.id);
+        }
+        scheduleDrain(subscriber);
+    }
+
+    private void scheduleDrain(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            sender.execute(() -> drain(subscriber));
+        }
+    }
+
+    // One drain per client at a time keeps its events in order
+    private void drain(Subscriber subscriber) {
+        try {
+            Object item;
+            while ((item = subscriber.queue.poll()) != null) {
+                subscriber.sendStartedAt = System.currentTimeMillis();
+                if (item == HEARTBEAT) {
+                    subscriber.emitter.send(SseEmitter.event().comment("ping"));
+                } else if (item instanceof StreamEvent) {
+                    StreamEvent streamEvent = (StreamEvent) item;
+                    subscriber.emitter.send(SseEmitter.event()
+                            .id(epoch + "-" + streamEvent.seq)
+                            .name(streamEvent.event.getType())
+                            .data(streamEvent.event, MediaType.APPLICATION_JSON));
+                } else {
+                    // RESYNC carries no id, so a reconnect still resumes from the last delivered event
+                    ConversationUpdatedEvent event = (ConversationUpdatedEvent) item;
+                    subscriber.emitter.send(SseEmitter.event()
+                            .name(event.getType())
+                            .data(event, MediaType.APPLICATION_JSON));
+                }
+                subscriber.sendStartedAt = 0;
+
+                if (!subscribers.containsKey(subscriber.id)) {
+                    // Dropped while the write was stuck
+                    subscriber.queue.clear();
+                    subscriber.emitter.complete();
+                    return;
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Client went away or the emitter already completed
+            remove(subscriber);
+            subscriber.queue.clear();
+            subscriber.emitter.completeWithError(e);
+        } finally {
+            subscriber.sendStartedAt = 0;
+            subscriber.draining.set(false);
+        }
+
+        // Something was queued after the last poll but before draining was released
+        if (!subscriber.queue.isEmpty() && subscribers.containsKey(subscriber.id)) {
+            scheduleDrain(subscriber);
+        }
+    }
+
+    private static class StreamEvent {
+        private final long seq;
+        private final ConversationUpdatedEvent event;
+
+        private StreamEvent(long seq, ConversationUpdatedEvent event) {
+            this.seq = seq;
+            this.event = event;
+        }
+    }
+
+    private static class Subscriber {
+        private final String id;
+        private final SseEmitter emitter;
+        private final String userEmail;
+        private final boolean admin;
+        private final String conversationId;
+        private final BlockingQueue<Object> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean slotHeld = new AtomicBoolean(true);
+        private volatile long sendStartedAt; // 0 when no write is in progress
+
+        private Subscriber(String id, SseEmitter emitter, String userEmail, boolean admin, String conversationId,
+                int queueCapacity) {
+            this.id = id;
+            this.emitter = emitter;
+            this.userEmail = userEmail;
+            this.admin = admin;
+            this.conversationId = conversationId;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        }
+
+        private boolean wants(ConversationUpdatedEvent event) {
+            if (conversationId != null && !conversationId.equals(event.getConversationId())) {
+                return false;
+            }
+            return admin || (userEmail != null && userEmail.equalsIgnoreCase(event.getUserEmail()));
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.bookstore.backend.service;
+
+import com.bookstore.backend.model.Order;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AccumulatorOperators;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.SequenceWriter;
+import tools.jackson.dataformat.csv.CsvMapper;
+import tools.jackson.dataformat.csv.CsvSchema;
+
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
+
+// Writes orders and sales reports straight from a Mongo cursor to the response, one row at a time,
+// so an export holds a cursor batch in memory rather than the whole result
+@Service
+public class ExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportService.class);
+
+    public static final String FORMAT_CSV = "csv";
+    public static final String FORMAT_NDJSON = "ndjson";
+
+    public static final String SALES_BY_DAY = "day";
+    public static final String SALES_BY_BOOK = "book";
+
+    private static final List<String> ORDER_COLUMNS = List.of("orderId", "orderDate", "userId", "status",
+            "totalAmount", "bookId", "title", "price", "quantity");
+    private static final List<String> SALES_BY_DAY_COLUMNS = List.of("day", "orderCount", "itemsSold", "revenue");
+    private static final List<String> SALES_BY_BOOK_COLUMNS = List.of("bookId", "title", "orderCount", "itemsSold",
+            "revenue");
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${export.cursor-batch-size:500}")
+    private int cursorBatchSize;
+
+    private final CsvMapper csvMapper = new CsvMapper();
+
+    public String checkFormat(String format) {
+        if (FORMAT_CSV.equalsIgnoreCase(format)) {
+            return FORMAT_CSV;
+        }
+        if (FORMAT_NDJSON.equalsIgnoreCase(format)) {
+            return FORMAT_NDJSON;
+        }
+        throw new IllegalArgumentException("Unsupported export format: " + format + " (use csv or ndjson)");
+    }
+
+    public String checkSalesGrouping(String groupBy) {
+        if (SALES_BY_DAY.equalsIgnoreCase(groupBy)) {
+            return SALES_BY_DAY;
+        }
+        if (SALES_BY_BOOK.equalsIgnoreCase(groupBy)) {
+            return SALES_BY_BOOK;
+        }
+        throw new IllegalArgumentException("Unsupported sales grouping: " + groupBy + " (use day or book)");
+    }
+
+    // Orders placed in [from, to] (either end optional), oldest first.
+    // CSV has one row per order line; NDJSON has one order (with its items) per line.
+    public void exportOrders(LocalDate from, LocalDate to, String status, String format, boolean gzip,
+            OutputStream out) throws Exception {
+        long startTime = System.currentTimeMillis();
+        Criteria criteria = orderDateRange(from, to);
+        if (status != null && !status.isBlank()) {
+            criteria = criteria.and("status").is(status);
+        }
+        Query query = new Query(criteria)
+                .with(Sort.by(Sort.Direction.ASC, "orderDate"))
+                .cursorBatchSize(cursorBatchSize);
+
+        long rows = 0;
+        try (SequenceWriter writer = rowWriter(format, ORDER_COLUMNS, gzip, out);
+             Stream<Order> orders = mongoTemplate.stream(query, Order.class)) {
+            for (Order order : (Iterable<Order>) orders::iterator) {
+                if (FORMAT_NDJSON.equals(format)) {
+                    writer.write(order);
+                    rows++;
+                    continue;
+                }
+                if (order.getItems() == null || order.getItems().isEmpty()) {
+                    writer.write(orderRow(order, null));
+                    rows++;
+                    continue;
+                }
+                for (Order.OrderItem item : order.getItems()) {
+                    writer.write(orderRow(order, item));
+                    rows++;
+                }
+            }
+        }
+
+        logger.info("Order export ({}{}): {} rows in {} ms", format, gzip ? ", gzip" : "", rows,
+                System.currentTimeMillis() - startTime);
+    }
+
+    // Sales totals per day or per book for orders placed in [from, to], grouped by MongoDB
+    // and streamed back through an aggregation cursor
+    public void exportSales(LocalDate from, LocalDate to, String groupBy, String format, boolean gzip,
+            OutputStream out) throws Exception {
+        long startTime = System.currentTimeMillis();
+        Criteria range = orderDateRange(from, to);
+        AggregationOptions options = AggregationOptions.builder()
+                .allowDiskUse(true)
+                .cursorBatchSize(cursorBatchSize)
+                .build();
+
+        Aggregation aggregation;
+        List<String> columns;
+        if (SALES_BY_BOOK.equals(groupBy)) {
+            columns = SALES_BY_BOOK_COLUMNS;
+            aggregation = newAggregation(
+                    match(range),
+                    unwind("items"),
+                    group("items.book_id")
+                            .count().as("orderCount")
+                            .sum("items.quantity").as("itemsSold")
+                            .sum(ArithmeticOperators.Multiply.valueOf("items.price").multiplyBy("items.quantity"))
+                            .as("revenue")
+                            .last("items.title").as("title"),
+                    sort(Sort.Direction.DESC, "revenue"))
+                    .withOptions(options);
+        } else {
+            columns = SALES_BY_DAY_COLUMNS;
+            DateOperators.Timezone timezone = DateOperators.Timezone.fromZone(ZoneId.systemDefault());
+            aggregation = newAggregation(
+                    match(from == null && to == null ? Criteria.where("orderDate").ne(null) : range),
+                    project("totalAmount")
+                            .and(DateOperators.DateToString.dateOf("orderDate").toString("%Y-%m-%d")
+                                    .withTimezone(timezone)).as("day")
+                            .and(AccumulatorOperators.Sum.sumOf("items.quantity")).as("itemsSold"),
+                    group("day")
+                            .count().as("orderCount")
+                            .sum("totalAmount").as("revenue")
+                            .sum("itemsSold").as("itemsSold"),
+                    sort(Sort.Direction.ASC, "_id"))
+                    .withOptions(options);
+        }
+
+        long rows = 0;
+        try (SequenceWriter writer = rowWriter(format, columns, gzip, out);
+             Stream<Document> results = mongoTemplate.aggregateStream(aggregation, Order.class, Document.class)) {
+            for (Document result : (Iterable<Document>) results::iterator) {
+                writer.write(salesRow(result, groupBy));
+                rows++;
+            }
+        }
+
+        logger.info("Sales export by {} ({}{}): {} rows in {} ms", groupBy, format, gzip ? ", gzip" : "", rows,
+                System.currentTimeMillis() - startTime);
+    }
+
+    // Closing the writer finishes the gzip trailer and closes the response stream
+    private SequenceWriter rowWriter(String format, List<String> columns, boolean gzip, OutputStream out)
+            throws Exception {
+        OutputStream target = gzip ? new GZIPOutputStream(out, 64 * 1024) : out;
+        if (FORMAT_CSV.equals(format)) {
+            CsvSchema.Builder schema = CsvSchema.builder().setUseHeader(true);
+            for (String column : columns) {
+                schema.addColumn(column);
+            }
+            return csvMapper.writer(schema.build()).writeValues(target);
+        }
+        return objectMapper.writer().withRootValueSeparator("\n").writeValues(target);
+    }
+
+    private static Criteria orderDateRange(LocalDate from, LocalDate to) {
+        if (from == null && to == null) {
+            return new Criteria();
+        }
+        Criteria criteria = Criteria.where("orderDate");
+        if (from != null) {
+            criteria = criteria.gte(from.atStartOfDay());
+        }
+        if (to != null) {
+            criteria = criteria.lt(to.plusDays(1).atStartOfDay());
+        }
+        return criteria;
+    }
+
+    private static Map<String, Object> orderRow(Order order, Order.OrderItem item) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("orderId", order.getOrder_id());
+        row.put("orderDate", order.getOrderDate() != null ? order.getOrderDate().toString() : null);
+        row.put("userId", order.getUserId());
+        row.put("status", order.getStatus());
+        row.put("totalAmount", order.getTotalAmount());
+        row.put("bookId", item != null ? item.getBook_id() : null);
+        row.put("title", item != null ? item.getTitle() : null);
+        row.put("price", item != null ? item.getPrice() : null);
+        row.put("quantity", item != null ? item.getQuantity() : null);
+        return row;
+    }
+
+    private static Map<String, Object> salesRow(Document result, String groupBy) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        Object key = result.get("_id");
+        if (SALES_BY_BOOK.equals(groupBy)) {
+            row.put("bookId", key != null ? key.toString() : null);
+            row.put("title", result.getString("title"));
+        } else {
+            row.put("day", key != null ? key.toString() : null);
+        }
+        row.put("orderCount", longValue(result, "orderCount"));
+        row.put("itemsSold", longValue(result, "itemsSold"));
+        row.put("revenue", doubleValue(result, "revenue"));
+        return row;
+    }
+
+    // Aggregation sums come back as Integer, Long or Double depending on the input values
+    private static long longValue(Document document, String key) {
+        Object value = document.get(key);
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+
+    private static double doubleValue(Document document, String key) {
+        Object value = document.get(key);
+        return value instanceof Number ? ((Number) value).doubleValue() : 0;
+    }
+}
@@ -1,84 +1,277 @@
 package com.bookstore.backend.service;
 
+import com.bookstore.backend.event.StockLevelChangedEvent;
 import com.bookstore.backend.model.Book;
 import com.bookstore.backend.repository.BookRepository;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.BooleanOperators;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import java.util.List;
-import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
 
 @Service
 public class InventoryService {
 
+    private static final Logger logger = LoggerFactory.getLogger(InventoryService.class);
+
     @Autowired
     private BookRepository bookRepository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private BookCacheService bookCacheService; // Every stock write below evicts the book
+
     private static final int LOW_STOCK_THRESHOLD = 5;
 
+    // Inventory fields only (no descriptions etc.)
     public List<Book> getAllBooks() {
-        return bookRepository.findAll();
+        return bookRepository.findAllInventoryItems();
     }
 
+    // Admin stock edits $set just the stock fields; reservedQuantity is moved by $inc from the
+    // reservation paths and a whole-document save would erase holds taken since the read
     public Book updateStock(String bookId, int newQuantity) {
-        Book book = bookRepository.findById(bookId)
-                .orElseThrow(() -> new RuntimeException("Book not found"));
-
-        book.setStockQuantity(newQuantity);
-        book.setStockStatus(determineStockStatus(newQuantity));
-
-        return bookRepository.save(book);
+        return setStockFields(bookId, new Update()
+                .set("stockQuantity", newQuantity)
+                .set("stockStatus", determineStockStatus(newQuantity)));
     }
 
     public Book updateStockStatus(String bookId, String status) {
-        Book book = bookRepository.findById(bookId)
-                .orElseThrow(() -> new RuntimeException("Book not found"));
-
-        book.setStockStatus(status);
+        Update update = new Update().set("stockStatus", status);
 
         // Auto-set quantity to 0 if out of stock
         if ("OUT_OF_STOCK".equals(status)) {
-            book.setStockQuantity(0);
+            update.set("stockQuantity", 0);
+        }
+
+        return setStockFields(bookId, update);
+    }
+
+    private Book setStockFields(String bookId, Update update) {
+        Book savedBook = mongoTemplate.findAndModify(new Query(Criteria.where("book_id").is(bookId)), update,
+                FindAndModifyOptions.options().returnNew(true), Book.class);
+        if (savedBook == null) {
+            throw new RuntimeException("Book not found");
         }
+        bookCacheService.evict(bookId);
+        publishStockChange(savedBook);
+        return savedBook;
+    }
+
+    // Atomically takes quantity units from stock, but only if that many are available to sell
+    // (stock not held by reservations). Returns the book with its new stock level, or null when
+    // stock was insufficient.
+    public Book decrementStock(String bookId, int quantity) {
+        Query query = new Query(Criteria.where("book_id").is(bookId).andOperator(availableAtLeast(quantity)));
+        query.fields().include("title", "author", "stockQuantity", "stockStatus");
 
-        return bookRepository.save(book);
+        Book updatedBook = mongoTemplate.findAndModify(query,
+                new Update().inc("stockQuantity", -quantity),
+                FindAndModifyOptions.options().returnNew(true),
+                Book.class);
+
+        if (updatedBook != null) {
+            syncStockStatus(updatedBook);
+            bookCacheService.evict(bookId);
+            publishStockChange(updatedBook);
+        }
+        return updatedBook;
+    }
+
+    // Gives back units taken by decrementStock (compensation for a failed order)
+    public void restoreStock(String bookId, int quantity) {
+        Query query = new Query(Criteria.where("book_id").is(bookId));
+        query.fields().include("title", "author", "stockQuantity", "stockStatus");
+
+        Book updatedBook = mongoTemplate.findAndModify(query,
+                new Update().inc("stockQuantity", quantity),
+                FindAndModifyOptions.options().returnNew(true),
+                Book.class);
+
+        if (updatedBook != null) {
+            syncStockStatus(updatedBook);
+            bookCacheService.evict(bookId);
+            publishStockChange(updatedBook);
+        }
+    }
+
+    // Listeners (e.g. LowStockAlertService) run on the caller's thread and must stay cheap
+    private void publishStockChange(Book book) {
+        eventPublisher.publishEvent(new StockLevelChangedEvent(book.getBook_id(), book.getTitle(),
+                book.getAuthor(), book.getStockQuantity()));
+    }
+
+    // Holds quantity units for a reservation if that many are available to sell.
+    // Returns the book with its new counters, or null when stock was insufficient.
+    public Book reserveStock(String bookId, int quantity) {
+        Query query = new Query(Criteria.where("book_id").is(bookId).andOperator(availableAtLeast(quantity)));
+        query.fields().include("stockQuantity", "reservedQuantity");
+
+        Book updatedBook = mongoTemplate.findAndModify(query,
+                new Update().inc("reservedQuantity", quantity),
+                FindAndModifyOptions.options().returnNew(true),
+                Book.class);
+
+        if (updatedBook != null) {
+            bookCacheService.evict(bookId);
+        }
+        return updatedBook;
+    }
+
+    // Drops a hold without selling it (release or expiry). Returns false, and logs, when the book
+    // no longer carries that many held units, i.e. reservedQuantity has drifted from the reservations.
+    public boolean releaseReservedStock(String bookId, int quantity) {
+        Query query = new Query(Criteria.where("book_id").is(bookId).and("reservedQuantity").gte(quantity));
+        long matched = mongoTemplate.updateFirst(query, new Update().inc("reservedQuantity", -quantity), Book.class)
+                .getMatchedCount();
+        bookCacheService.evict(bookId);
+        if (matched == 0) {
+            logger.warn("Release of {} held units of book {} matched nothing; reservedQuantity is out of step",
+                    quantity, bookId);
+            return false;
+        }
+        return true;
+    }
+
+    // Turns a hold into a sale: stock and the hold go down together in one $inc.
+    // Returns the book with its new stock level, or null if the hold was not there.
+    public Book commitReservedStock(String bookId, int quantity) {
+        Query query = new Query(Criteria.where("book_id").is(bookId)
+                .and("reservedQuantity").gte(quantity)
+                .and("stockQuantity").gte(quantity));
+        query.fields().include("title", "author", "stockQuantity", "stockStatus");
+
+        Book updatedBook = mongoTemplate.findAndModify(query,
+                new Update().inc("stockQuantity", -quantity).inc("reservedQuantity", -quantity),
+                FindAndModifyOptions.options().returnNew(true),
+                Book.class);
+
+        if (updatedBook != null) {
+            syncStockStatus(updatedBook);
+            bookCacheService.evict(bookId);
+            publishStockChange(updatedBook);
+        }
+        return updatedBook;
+    }
+
+    // Reverses commitReservedStock for an order that failed after the commit: the units go back
+    // into stock and stay held for the reservation, in one $inc
+    public Book uncommitReservedStock(String bookId, int quantity) {
+        Query query = new Query(Criteria.where("book_id").is(bookId));
+        query.fields().include("title", "author", "stockQuantity", "stockStatus");
+
+        Book updatedBook = mongoTemplate.findAndModify(query,
+                new Update().inc("stockQuantity", quantity).inc("reservedQuantity", quantity),
+                FindAndModifyOptions.options().returnNew(true),
+                Book.class);
+
+        if (updatedBook != null) {
+            syncStockStatus(updatedBook);
+            bookCacheService.evict(bookId);
+            publishStockChange(updatedBook);
+        }
+        return updatedBook;
+    }
+
+    // Available-to-sell read straight from the two counters
+    public Book getStockCounters(String bookId) {
+        Query query = new Query(Criteria.where("book_id").is(bookId));
+        query.fields().include("stockQuantity", "reservedQuantity");
+        return mongoTemplate.findOne(query, Book.class);
+    }
+
+    // stockQuantity - reservedQuantity >= quantity (books without holds have no reservedQuantity yet)
+    private Criteria availableAtLeast(int quantity) {
+        return Criteria.expr(ComparisonOperators.Gte.valueOf(
+                ArithmeticOperators.Subtract.valueOf("stockQuantity")
+                        .subtract(ConditionalOperators.ifNull("reservedQuantity").then(0)))
+                .greaterThanEqualToValue(quantity));
+    }
+
+    // Keeps stockStatus in line with the quantity after an $inc. Only applies if the quantity
+    // is still the one we saw, so a concurrent change never gets an outdated status.
+    private void syncStockStatus(Book book) {
+        String expectedStatus = determineStockStatus(book.getStockQuantity());
+        if (expectedStatus.equals(book.getStockStatus())) {
+            return;
+        }
+
+        Query query = new Query(Criteria.where("book_id").is(book.getBook_id())
+                .and("stockQuantity").is(book.getStockQuantity()));
+        mongoTemplate.updateFirst(query, new Update().set("stockStatus", expectedStatus), Book.class);
+        book.setStockStatus(expectedStatus);
     }
 
     public List<Book> getLowStockBooks() {
-        return bookRepository.findAll().stream()
-                .filter(book -> book.getStockQuantity() > 0 && book.getStockQuantity() <= LOW_STOCK_THRESHOLD)
-                .collect(Collectors.toList());
+        return bookRepository.findInventoryByStockQuantityBetween(1, LOW_STOCK_THRESHOLD);
+    }
+
+    // Books with between min and max units in stock, fewest first
+    public List<Book> getBooksWithStockBetween(int min, int max) {
+        return bookRepository.findInventoryByStockQuantityBetween(min, max);
     }
 
     public List<Book> getOutOfStockBooks() {
-        return bookRepository.findAll().stream()
-                .filter(book -> book.getStockQuantity() <= 0 || "OUT_OF_STOCK".equals(book.getStockStatus()))
-                .collect(Collectors.toList());
+        return bookRepository.findOutOfStockInventory();
     }
 
     public List<Book> getInStockBooks() {
-        return bookRepository.findAll().stream()
-                .filter(book -> book.getStockQuantity() > 0 && !"OUT_OF_STOCK".equals(book.getStockStatus()))
-                .collect(Collectors.toList());
+        return bookRepository.findInStockInventory();
     }
 
+    // All four counts in a single $group pass over the stock fields
     public InventorySummary getInventorySummary() {
-        List<Book> allBooks = bookRepository.findAll();
+        AggregationExpression hasStock = ComparisonOperators.Gt.valueOf("stockQuantity").greaterThanValue(0);
+        AggregationExpression markedOut = ComparisonOperators.Eq.valueOf("stockStatus").equalToValue("OUT_OF_STOCK");
+        AggregationExpression inStock = BooleanOperators.And.and(hasStock, BooleanOperators.Not.not(markedOut));
+        AggregationExpression lowStock = BooleanOperators.And.and(hasStock,
+                ComparisonOperators.Lte.valueOf("stockQuantity").lessThanEqualToValue(LOW_STOCK_THRESHOLD));
 
-        long totalBooks = allBooks.size();
-        long inStockCount = allBooks.stream()
-                .filter(book -> book.getStockQuantity() > 0 && !"OUT_OF_STOCK".equals(book.getStockStatus()))
-                .count();
-        long outOfStockCount = allBooks.stream()
-                .filter(book -> book.getStockQuantity() <= 0 || "OUT_OF_STOCK".equals(book.getStockStatus()))
-                .count();
-        long lowStockCount = allBooks.stream()
-                .filter(book -> book.getStockQuantity() > 0 && book.getStockQuantity() <= LOW_STOCK_THRESHOLD)
-                .count();
+        Document totals = mongoTemplate.aggregate(newAggregation(
+                project("stockQuantity", "stockStatus"),
+                group()
+                        .count().as("totalBooks")
+                        .sum(countIf(inStock)).as("inStockCount")
+                        .sum(countIf(BooleanOperators.Not.not(inStock))).as("outOfStockCount")
+                        .sum(countIf(lowStock)).as("lowStockCount")),
+                Book.class, Document.class).getUniqueMappedResult();
+
+        if (totals == null) {
+            return new InventorySummary(0, 0, 0, 0);
+        }
+        return new InventorySummary(longValue(totals, "totalBooks"), longValue(totals, "inStockCount"),
+                longValue(totals, "outOfStockCount"), longValue(totals, "lowStockCount"));
+    }
+
+    private static AggregationExpression countIf(AggregationExpression condition) {
+        return ConditionalOperators.when(condition).then(1).otherwise(0);
+    }
 
-        return new InventorySummary(totalBooks, inStockCount, outOfStockCount, lowStockCount);
+    private static long longValue(Document document, String key) {
+        Object value = document.get(key);
+        return value instanceof Number ? ((Number) value).longValue() : 0;
     }
 
-    private String determineStockStatus(int quantity) {
+    static String determineStockStatus(int quantity) {
         if (quantity <= 0) {
             return "OUT_OF_STOCK";
         } else if (quantity <= LOW_STOCK_THRESHOLD) {
@@ -1,38 +1,96 @@
 package com.bookstore.backend.service;
 
+import com.bookstore.backend.event.StockLevelChangedEvent;
 import com.bookstore.backend.model.Book;
-import com.bookstore.backend.repository.BookRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 
+// Alerts are raised as soon as a stock change crosses into low stock (see onStockLevelChanged),
+// queued once per book and sent in batches. The hourly job only reconciles missed changes.
 @Service
 public class LowStockAlertService {
 
+    private static final Logger logger = LoggerFactory.getLogger(LowStockAlertService.class);
+
     @Autowired
-    private BookRepository bookRepository;
+    private BookCacheService bookCacheService;
 
     @Autowired
     private InventoryService inventoryService;
 
+    @Value("${inventory.alerts.batch-size:50}")
+    private int batchSize;
+
     private static final int LOW_STOCK_THRESHOLD = 5;
+
+    // bookId -> alerted (or acknowledged); a book is queued only when it first enters this map
     private final ConcurrentMap<String, Boolean> alertCache = new ConcurrentHashMap<>();
 
-    // Check for low stock every hour
+    // Alerts waiting for the next flush, latest stock level per book
+    private final ConcurrentLinkedQueue<String> pendingAlertIds = new ConcurrentLinkedQueue<>();
+    private final ConcurrentMap<String, StockLevelChangedEvent> pendingAlerts = new ConcurrentHashMap<>();
+
+    @EventListener
+    public void onStockLevelChanged(StockLevelChangedEvent event) {
+        String bookId = event.getBookId();
+        int quantity = event.getStockQuantity();
+
+        if (quantity > 0 && quantity <= LOW_STOCK_THRESHOLD) {
+            if (alertCache.putIfAbsent(bookId, true) == null) {
+                enqueueAlert(event);
+            } else {
+                // Already queued: keep the newest level for the message
+                pendingAlerts.computeIfPresent(bookId, (id, previous) -> event);
+            }
+        } else {
+            // Restocked (or sold out): the alert is resolved and may fire again next time
+            alertCache.remove(bookId);
+            pendingAlerts.remove(bookId);
+        }
+    }
+
+    // Sends queued alerts in batches
+    @Scheduled(fixedDelayString = "${inventory.alerts.flush-interval-ms:5000}")
+    public void flushAlerts() {
+        List<StockLevelChangedEvent> batch = new ArrayList<>();
+        String bookId;
+        while ((bookId = pendingAlertIds.poll()) != null) {
+            StockLevelChangedEvent event = pendingAlerts.remove(bookId);
+            if (event == null) {
+                continue; // resolved before it was sent
+            }
+            batch.add(event);
+            if (batch.size() >= batchSize) {
+                sendLowStockAlerts(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            sendLowStockAlerts(batch);
+        }
+    }
+
+    // Reconciliation sweep: catches anything the stock events missed (e.g. direct database edits)
     @Scheduled(fixedRate = 3600000) // 1 hour in milliseconds
     public void checkLowStockAlerts() {
         List<Book> lowStockBooks = inventoryService.getLowStockBooks();
 
         for (Book book : lowStockBooks) {
-            String bookId = book.getBook_id();
-            boolean wasAlerted = alertCache.getOrDefault(bookId, false);
-
-            if (!wasAlerted) {
-                sendLowStockAlert(book);
-                alertCache.put(bookId, true);
+            if (alertCache.putIfAbsent(book.getBook_id(), true) == null) {
+                enqueueAlert(new StockLevelChangedEvent(book.getBook_id(), book.getTitle(), book.getAuthor(),
+                        book.getStockQuantity()));
             }
         }
 
@@ -45,13 +103,11 @@ public class LowStockAlertService {
     }
 
     public List<Book> getCriticalLowStockBooks() {
-        return inventoryService.getAllBooks().stream()
-                .filter(book -> book.getStockQuantity() > 0 && book.getStockQuantity() <= 2)
-                .collect(java.util.stream.Collectors.toList());
+        return inventoryService.getBooksWithStockBetween(1, 2);
     }
 
     public boolean isBookLowStock(String bookId) {
-        Book book = bookRepository.findById(bookId).orElse(null);
+        Book book = bookCacheService.findById(bookId).orElse(null);
         if (book == null)
             return false;
 
@@ -60,26 +116,38 @@ public class LowStockAlertService {
 
     public void acknowledgeAlert(String bookId) {
         alertCache.put(bookId, true);
+        pendingAlerts.remove(bookId);
     }
 
     public void resetAlert(String bookId) {
         alertCache.remove(bookId);
+        pendingAlerts.remove(bookId);
     }
 
-    private void sendLowStockAlert(Book book) {
+    private void enqueueAlert(StockLevelChangedEvent event) {
+        if (pendingAlerts.put(event.getBookId(), event) == null) {
+            pendingAlertIds.add(event.getBookId());
+        }
+    }
+
+    private void sendLowStockAlerts(List<StockLevelChangedEvent> batch) {
         // This could be extended to send emails, notifications, etc.
-        // For now, we'll just log the alert
-        System.out.println("LOW STOCK ALERT: Book '" + book.getTitle() +
-                "' by " + book.getAuthor() +
-                " has only " + book.getStockQuantity() + " units remaining.");
+        // For now, we'll just log the alerts
+        logger.warn("LOW STOCK ALERT: {} book(s) running low", batch.size());
+        for (StockLevelChangedEvent event : batch) {
+            logger.warn("LOW STOCK ALERT: Book '{}' by {} has only {} units remaining.",
+                    event.getTitle(), event.getAuthor(), event.getStockQuantity());
+        }
     }
 
     private void clearResolvedAlerts(List<Book> currentLowStockBooks) {
-        List<String> currentLowStockIds = currentLowStockBooks.stream()
-                .map(Book::getBook_id)
-                .collect(java.util.stream.Collectors.toList());
+        Set<String> currentLowStockIds = new HashSet<>();
+        for (Book book : currentLowStockBooks) {
+            currentLowStockIds.add(book.getBook_id());
+        }
 
         alertCache.entrySet().removeIf(entry -> !currentLowStockIds.contains(entry.getKey()));
+        pendingAlerts.keySet().removeIf(bookId -> !currentLowStockIds.contains(bookId));
     }
 
     public LowStockReport generateLowStockReport() {
@@ -7,24 +7,50 @@ import com.bookstore.backend.repository.BookRepository;
 import com.bookstore.backend.repository.OrderRepository;
 import com.bookstore.backend.repository.UserRepository;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class OrderService {
 
+    private static final Logger logger = LoggerFactory.getLogger(OrderService.class);
+
     @Autowired
     private OrderRepository orderRepository;
 
     @Autowired
-    private BookRepository bookRepository; // Needed to check price and stock
+    private BookRepository bookRepository; // Catalog price and title for each line, never from the cache
 
     @Autowired
     private UserRepository userRepository; // Needed to validate user ID
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private InventoryService inventoryService; // Atomic stock updates
+
+    @Autowired
+    private SalesRollupService salesRollupService; // Report counters
+
+    @Autowired
+    private StockReservationService stockReservationService; // Lines paid for with a prior hold
+
     public Order placeOrder(Order order) {
 
         // 1. Validate User ID
@@ -32,39 +58,107 @@ public class OrderService {
             throw new IllegalArgumentException("User ID is invalid or user does not exist.");
         }
 
+        // 2. Load every book in the cart with one $in query
+        Set<String> bookIds = new HashSet<>();
+        for (OrderItem item : order.getItems()) {
+            bookIds.add(item.getBook_id());
+        }
+        Map<String, Book> booksById = new HashMap<>();
+        for (Book book : bookRepository.findAllById(bookIds)) {
+            booksById.put(book.getBook_id(), book);
+        }
+
         double calculatedTotal = 0;
 
         for (OrderItem item : order.getItems()) {
-            Optional<Book> bookOptional = bookRepository.findById(item.getBook_id());
+            if (item.getQuantity() <= 0) {
+                throw new IllegalArgumentException("Quantity must be greater than zero for book ID " + item.getBook_id());
+            }
 
-            if (bookOptional.isEmpty()) {
+            Book book = booksById.get(item.getBook_id());
+
+            if (book == null) {
                 throw new IllegalArgumentException("Book with ID " + item.getBook_id() + " not found.");
             }
 
-            Book book = bookOptional.get();
-
+            // 3. Price and title are taken from the catalog, not from the client
             item.setPrice(book.getPrice());
+            item.setTitle(book.getTitle());
+
+            // 4. Calculate Total
+            calculatedTotal += item.getPrice() * item.getQuantity();
+        }
 
-            // 4. Stock Check
-            if (book.getStockQuantity() < item.getQuantity()) {
-                throw new IllegalArgumentException(
-                        "Insufficient stock for book: " + book.getTitle() +
-                                ". Available: " + book.getStockQuantity());
+        // 5. Stock Check + Update in one conditional $inc per line. A line with a reservationId
+        // turns its hold into the sale; other lines may only take stock that is not held.
+        // If a line runs out, the lines already taken are put back before failing.
+        List<OrderItem> decrementedItems = new ArrayList<>();
+        List<OrderItem> committedItems = new ArrayList<>();
+        Order savedOrder;
+        try {
+            for (OrderItem item : order.getItems()) {
+                if (item.getReservationId() != null && !item.getReservationId().isEmpty()) {
+                    stockReservationService.commit(item.getReservationId(), order.getUserId(),
+                            item.getBook_id(), item.getQuantity());
+                    committedItems.add(item);
+                    continue;
+                }
+
+                Book updatedBook = inventoryService.decrementStock(item.getBook_id(), item.getQuantity());
+                if (updatedBook == null) {
+                    Book book = booksById.get(item.getBook_id());
+                    throw new IllegalArgumentException(
+                            "Insufficient stock for book: " + book.getTitle() +
+                                    ". Available: " + Math.max(0, book.getStockQuantity() - book.getReservedQuantity()));
+                }
+                decrementedItems.add(item);
             }
 
-            // 5. Update Stock
-            book.setStockQuantity(book.getStockQuantity() - item.getQuantity());
-            bookRepository.save(book);
+            // 6. Finalize Order and Save
+            order.setTotalAmount(calculatedTotal);
+
+            // Order status and date are set in the Order model constructor
+            savedOrder = orderRepository.save(order);
+        } catch (RuntimeException e) {
+            // Each line is given back on its own, so one failed compensation cannot strand the rest
+            // or hide the original failure
+            for (OrderItem item : decrementedItems) {
+                try {
+                    inventoryService.restoreStock(item.getBook_id(), item.getQuantity());
+                } catch (RuntimeException restoreFailure) {
+                    logger.error("Failed to restore {} units of book {} after a failed order: {}",
+                            item.getQuantity(), item.getBook_id(), restoreFailure.getMessage());
+                }
+            }
+            for (OrderItem item : committedItems) {
+                try {
+                    stockReservationService.undoCommit(item.getReservationId(), item.getBook_id(),
+                            item.getQuantity());
+                } catch (RuntimeException undoFailure) {
+                    logger.error("Failed to undo reservation {} ({} units of book {}) after a failed order: {}",
+                            item.getReservationId(), item.getQuantity(), item.getBook_id(), undoFailure.getMessage());
+                }
+            }
+            throw e;
+        }
 
-            // 6. Calculate Total
-            calculatedTotal += item.getPrice() * item.getQuantity();
+        for (OrderItem item : committedItems) {
+            try {
+                stockReservationService.attachOrder(item.getReservationId(), savedOrder.getOrder_id());
+            } catch (RuntimeException e) {
+                logger.error("Failed to link reservation {} to order {}: {}", item.getReservationId(),
+                        savedOrder.getOrder_id(), e.getMessage());
+            }
         }
 
-        // 7. Finalize Order and Save
-        order.setTotalAmount(calculatedTotal);
+        // 7. Update sales rollups; a failure here must not undo a placed order
+        try {
+            salesRollupService.recordOrderPlaced(savedOrder);
+        } catch (RuntimeException e) {
+            logger.error("Failed to update sales rollups for order {}: {}", savedOrder.getOrder_id(), e.getMessage());
+        }
 
-        // Order status and date are set in the Order model constructor
-        return orderRepository.save(order);
+        return savedOrder;
     }
 
     // 2. READ ALL
@@ -84,12 +178,6 @@ public class OrderService {
 
     // 5. UPDATE ORDER STATUS
     public Order updateStatus(String id, String status) {
-        Optional<Order> orderOptional = orderRepository.findById(id);
-
-        if (orderOptional.isEmpty()) {
-            throw new RuntimeException("Order not found with id: " + id);
-        }
-
         // Validate status
         String[] validStatuses = { "PENDING", "PROCESSING", "SHIPPED", "DELIVERED", "CANCELLED" };
         boolean isValid = false;
@@ -105,8 +193,34 @@ public class OrderService {
                     "Invalid status. Must be one of: PENDING, PROCESSING, SHIPPED, DELIVERED, CANCELLED");
         }
 
-        Order order = orderOptional.get();
-        order.setStatus(status);
-        return orderRepository.save(order);
+        // Compare-and-set on the status we read, so of two concurrent changes only the one that
+        // actually moved the order from oldStatus moves the STATUS rollups; the other re-reads
+        while (true) {
+            Optional<Order> orderOptional = orderRepository.findById(id);
+            if (orderOptional.isEmpty()) {
+                throw new RuntimeException("Order not found with id: " + id);
+            }
+
+            Order order = orderOptional.get();
+            String oldStatus = order.getStatus();
+            if (status.equals(oldStatus)) {
+                return order;
+            }
+
+            Order savedOrder = mongoTemplate.findAndModify(
+                    new Query(Criteria.where("order_id").is(id).and("status").is(oldStatus)),
+                    new Update().set("status", status),
+                    FindAndModifyOptions.options().returnNew(true), Order.class);
+            if (savedOrder == null) {
+                continue;
+            }
+
+            try {
+                salesRollupService.recordStatusChange(savedOrder, oldStatus, status);
+            } catch (RuntimeException e) {
+                logger.error("Failed to update sales rollups for order {}: {}", id, e.getMessage());
+            }
+            return savedOrder;
+        }
     }
 }
\ No newline at end of file
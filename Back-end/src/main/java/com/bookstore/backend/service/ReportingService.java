@@ -3,232 +3,181 @@ package com.bookstore.backend.service;
 import com.bookstore.backend.dto.*;
 import com.bookstore.backend.model.Book;
 import com.bookstore.backend.model.Order;
-import com.bookstore.backend.model.Order.OrderItem;
+import com.bookstore.backend.model.SalesRollup;
 import com.bookstore.backend.model.User;
-import com.bookstore.backend.repository.BookRepository;
-import com.bookstore.backend.repository.OrderRepository;
-import com.bookstore.backend.repository.UserRepository;
+import org.bson.Document;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
-import java.time.Month;
+import java.time.YearMonth;
+import java.time.ZoneId;
 import java.time.format.TextStyle;
 import java.util.*;
-import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
 
 @Service
 public class ReportingService {
 
     @Autowired
-    private OrderRepository orderRepository;
+    private MongoTemplate mongoTemplate;
 
     @Autowired
-    private UserRepository userRepository;
+    private BookCacheService bookCacheService;
 
     @Autowired
-    private BookRepository bookRepository;
+    private SalesRollupService salesRollupService;
+
+    // Sales, monthly revenue and top books are read from sales_rollups; user activity is
+    // computed by a MongoDB aggregation. Only result rows come back to the JVM.
 
     public SalesReportDTO getTotalSalesReport() {
-        List<Order> allOrders = orderRepository.findAll();
-        
+        // One small rollup document per order status
+        List<SalesRollup> statusRollups = salesRollupService.getRollups(SalesRollupService.TYPE_STATUS);
+
         SalesReportDTO report = new SalesReportDTO();
-        
+
         double totalRevenue = 0;
+        int totalOrders = 0;
         int totalItemsSold = 0;
         Map<String, Integer> ordersByStatus = new HashMap<>();
         Map<String, Double> revenueByStatus = new HashMap<>();
-        
-        for (Order order : allOrders) {
-            totalRevenue += order.getTotalAmount();
-            
-            // Count items sold
-            if (order.getItems() != null) {
-                for (OrderItem item : order.getItems()) {
-                    totalItemsSold += item.getQuantity();
-                }
+
+        for (SalesRollup rollup : statusRollups) {
+            if (rollup.getOrderCount() <= 0) {
+                continue; // every order has moved on from this status
             }
-            
-            // Count orders by status
-            String status = order.getStatus();
-            ordersByStatus.put(status, ordersByStatus.getOrDefault(status, 0) + 1);
-            revenueByStatus.put(status, revenueByStatus.getOrDefault(status, 0.0) + order.getTotalAmount());
+            totalOrders += rollup.getOrderCount();
+            totalRevenue += rollup.getRevenue();
+            totalItemsSold += rollup.getItemsSold();
+            ordersByStatus.put(rollup.getKey(), (int) rollup.getOrderCount());
+            revenueByStatus.put(rollup.getKey(), rollup.getRevenue());
         }
-        
+
         report.setTotalRevenue(totalRevenue);
-        report.setTotalOrders(allOrders.size());
+        report.setTotalOrders(totalOrders);
         report.setTotalItemsSold(totalItemsSold);
-        report.setAverageOrderValue(allOrders.isEmpty() ? 0 : totalRevenue / allOrders.size());
+        report.setAverageOrderValue(totalOrders == 0 ? 0 : totalRevenue / totalOrders);
         report.setOrdersByStatus(ordersByStatus);
         report.setRevenueByStatus(revenueByStatus);
-        
+
         return report;
     }
 
     public List<TopSellingBookDTO> getTopSellingBooks(int limit) {
-        List<Order> allOrders = orderRepository.findAll();
-        
-        // Map to aggregate book sales: bookId -> {quantity, revenue, bookInfo}
-        Map<String, BookSalesData> bookSalesMap = new HashMap<>();
-        
-        for (Order order : allOrders) {
-            if (order.getItems() != null) {
-                for (OrderItem item : order.getItems()) {
-                    String bookId = item.getBook_id();
-                    BookSalesData data = bookSalesMap.getOrDefault(bookId, new BookSalesData());
-                    data.quantity += item.getQuantity();
-                    data.revenue += item.getPrice() * item.getQuantity();
-                    data.title = item.getTitle();
-                    data.price = item.getPrice();
-                    bookSalesMap.put(bookId, data);
-                }
-            }
+        // Top K first: MongoDB sorts the per-book rollups and keeps only the first K
+        List<SalesRollup> bookRollups = salesRollupService.getTopBooks(limit);
+
+        // Then the authors of just those K books (cached, one $in lookup for the rest)
+        List<String> bookIds = new ArrayList<>();
+        for (SalesRollup rollup : bookRollups) {
+            bookIds.add(rollup.getKey());
+        }
+        Map<String, String> authorsById = new HashMap<>();
+        for (Book book : bookCacheService.findAllById(bookIds).values()) {
+            authorsById.put(book.getBook_id(), book.getAuthor());
+        }
+
+        List<TopSellingBookDTO> topBooks = new ArrayList<>();
+        for (SalesRollup rollup : bookRollups) {
+            TopSellingBookDTO dto = new TopSellingBookDTO();
+            dto.setBookId(rollup.getKey());
+            dto.setTitle(rollup.getTitle());
+            dto.setAuthor(authorsById.get(rollup.getKey()));
+            dto.setTotalQuantitySold((int) rollup.getItemsSold());
+            dto.setTotalRevenue(rollup.getRevenue());
+            dto.setPrice(rollup.getPrice());
+            topBooks.add(dto);
         }
-        
-        // Convert to DTOs and sort by quantity sold
-        List<TopSellingBookDTO> topBooks = bookSalesMap.entrySet().stream()
-                .map(entry -> {
-                    TopSellingBookDTO dto = new TopSellingBookDTO();
-                    dto.setBookId(entry.getKey());
-                    dto.setTitle(entry.getValue().title);
-                    dto.setTotalQuantitySold(entry.getValue().quantity);
-                    dto.setTotalRevenue(entry.getValue().revenue);
-                    dto.setPrice(entry.getValue().price);
-                    
-                    // Fetch author from book repository
-                    Optional<Book> bookOptional = bookRepository.findById(entry.getKey());
-                    if (bookOptional.isPresent()) {
-                        dto.setAuthor(bookOptional.get().getAuthor());
-                    }
-                    
-                    return dto;
-                })
-                .sorted((a, b) -> Integer.compare(b.getTotalQuantitySold(), a.getTotalQuantitySold()))
-                .limit(limit)
-                .collect(Collectors.toList());
-        
+
         return topBooks;
     }
 
     public List<MonthlyRevenueDTO> getMonthlyRevenueStats() {
-        List<Order> allOrders = orderRepository.findAll();
-        
-        // Group orders by year-month
-        Map<String, MonthlyData> monthlyDataMap = new HashMap<>();
-        
-        for (Order order : allOrders) {
-            LocalDateTime orderDate = order.getOrderDate();
-            if (orderDate != null) {
-                String monthKey = orderDate.getYear() + "-" + String.format("%02d", orderDate.getMonthValue());
-                
-                MonthlyData data = monthlyDataMap.getOrDefault(monthKey, new MonthlyData());
-                data.revenue += order.getTotalAmount();
-                data.orderCount++;
-                
-                if (order.getItems() != null) {
-                    for (OrderItem item : order.getItems()) {
-                        data.itemsSold += item.getQuantity();
-                    }
-                }
-                
-                data.year = orderDate.getYear();
-                data.month = orderDate.getMonth();
-                
-                monthlyDataMap.put(monthKey, data);
-            }
+        // Month rollups are keyed "yyyy-MM", so key order is date order (most recent first)
+        List<SalesRollup> monthRollups = salesRollupService.getRollupsNewestFirst(SalesRollupService.TYPE_MONTH);
+
+        List<MonthlyRevenueDTO> monthlyStats = new ArrayList<>();
+        for (SalesRollup rollup : monthRollups) {
+            YearMonth yearMonth = YearMonth.parse(rollup.getKey());
+
+            MonthlyRevenueDTO dto = new MonthlyRevenueDTO();
+            dto.setMonth(yearMonth.getMonth().getDisplayName(TextStyle.FULL, Locale.ENGLISH));
+            dto.setYear(yearMonth.getYear());
+            dto.setRevenue(rollup.getRevenue());
+            dto.setOrderCount((int) rollup.getOrderCount());
+            dto.setItemsSold((int) rollup.getItemsSold());
+            monthlyStats.add(dto);
         }
-        
-        // Convert to DTOs and sort by date (most recent first)
-        List<MonthlyRevenueDTO> monthlyStats = monthlyDataMap.entrySet().stream()
-                .map(entry -> {
-                    MonthlyRevenueDTO dto = new MonthlyRevenueDTO();
-                    MonthlyData data = entry.getValue();
-                    dto.setMonth(data.month.getDisplayName(TextStyle.FULL, Locale.ENGLISH));
-                    dto.setYear(data.year);
-                    dto.setRevenue(data.revenue);
-                    dto.setOrderCount(data.orderCount);
-                    dto.setItemsSold(data.itemsSold);
-                    return dto;
-                })
-                .sorted((a, b) -> {
-                    int yearCompare = Integer.compare(b.getYear(), a.getYear());
-                    if (yearCompare != 0) return yearCompare;
-                    // Compare by month value
-                    Month monthA = Month.valueOf(a.getMonth().toUpperCase());
-                    Month monthB = Month.valueOf(b.getMonth().toUpperCase());
-                    return Integer.compare(monthB.getValue(), monthA.getValue());
-                })
-                .collect(Collectors.toList());
-        
+
         return monthlyStats;
     }
 
+    // Rebuilds the sales rollups from the orders collection (admin maintenance)
+    public void rebuildSalesRollups() {
+        salesRollupService.backfill();
+    }
+
     public List<UserActivityDTO> getUserActivityLogs() {
-        List<User> allUsers = userRepository.findAll();
-        List<Order> allOrders = orderRepository.findAll();
-        
-        // Group orders by userId
-        Map<String, UserOrderData> userOrderMap = new HashMap<>();
-        
-        for (Order order : allOrders) {
-            String userId = order.getUserId();
-            UserOrderData data = userOrderMap.getOrDefault(userId, new UserOrderData());
-            data.totalOrders++;
-            data.totalSpent += order.getTotalAmount();
-            
-            if (order.getOrderDate() != null) {
-                if (data.lastOrderDate == null || order.getOrderDate().isAfter(data.lastOrderDate)) {
-                    data.lastOrderDate = order.getOrderDate();
-                }
-            }
-            
-            userOrderMap.put(userId, data);
+        // Order totals per user, grouped by MongoDB
+        Aggregation aggregation = newAggregation(
+                group("userId")
+                        .count().as("totalOrders")
+                        .sum("totalAmount").as("totalSpent")
+                        .max("orderDate").as("lastOrderDate"));
+
+        Map<String, Document> ordersByUser = new HashMap<>();
+        for (Document row : mongoTemplate.aggregate(aggregation, Order.class, Document.class).getMappedResults()) {
+            ordersByUser.put(row.getString("_id"), row);
         }
-        
+
+        // Only the profile fields the report shows (no password hashes)
+        Query userQuery = new Query();
+        userQuery.fields().include("name", "email", "createdAt");
+        List<User> allUsers = mongoTemplate.find(userQuery, User.class);
+
         // Convert to DTOs
         List<UserActivityDTO> activityLogs = new ArrayList<>();
-        
+
         for (User user : allUsers) {
             UserActivityDTO dto = new UserActivityDTO();
             dto.setUserId(user.getUser_id());
             dto.setUserName(user.getName());
             dto.setEmail(user.getEmail());
             dto.setRegistrationDate(user.getCreatedAt());
-            
-            UserOrderData orderData = userOrderMap.getOrDefault(user.getUser_id(), new UserOrderData());
-            dto.setTotalOrders(orderData.totalOrders);
-            dto.setTotalSpent(orderData.totalSpent);
-            dto.setLastOrderDate(orderData.lastOrderDate);
-            
+
+            Document orderData = ordersByUser.get(user.getUser_id());
+            if (orderData != null) {
+                dto.setTotalOrders(intValue(orderData, "totalOrders"));
+                dto.setTotalSpent(doubleValue(orderData, "totalSpent"));
+                Date lastOrderDate = orderData.getDate("lastOrderDate");
+                if (lastOrderDate != null) {
+                    dto.setLastOrderDate(LocalDateTime.ofInstant(lastOrderDate.toInstant(), ZoneId.systemDefault()));
+                }
+            }
+
             activityLogs.add(dto);
         }
-        
+
         // Sort by total orders (most active first)
         activityLogs.sort((a, b) -> Integer.compare(b.getTotalOrders(), a.getTotalOrders()));
-        
-        return activityLogs;
-    }
 
-    // Helper classes for internal data aggregation
-    private static class BookSalesData {
-        int quantity = 0;
-        double revenue = 0;
-        String title = "";
-        double price = 0;
+        return activityLogs;
     }
 
-    private static class MonthlyData {
-        double revenue = 0;
-        int orderCount = 0;
-        int itemsSold = 0;
-        int year;
-        Month month;
+    // Aggregation sums come back as Integer, Long or Double depending on the input values
+    private static int intValue(Document document, String key) {
+        Object value = document.get(key);
+        return value instanceof Number ? ((Number) value).intValue() : 0;
     }
 
-    private static class UserOrderData {
-        int totalOrders = 0;
-        double totalSpent = 0;
-        LocalDateTime lastOrderDate;
+    private static double doubleValue(Document document, String key) {
+        Object value = document.get(key);
+        return value instanceof Number ? ((Number) value).doubleValue() : 0;
     }
 }
-
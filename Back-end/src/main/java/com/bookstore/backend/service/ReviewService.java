@@ -1,26 +1,55 @@
 package com.bookstore.backend.service;
 
+import com.bookstore.backend.dto.CursorPage;
+import com.bookstore.backend.dto.RatingSummary;
 import com.bookstore.backend.model.Book;
 import com.bookstore.backend.model.Review;
 import com.bookstore.backend.model.User;
-import com.bookstore.backend.repository.BookRepository;
 import com.bookstore.backend.repository.ReviewRepository;
 import com.bookstore.backend.repository.UserRepository;
+import com.bookstore.backend.util.KeysetCursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 public class ReviewService {
 
+    private static final Logger logger = LoggerFactory.getLogger(ReviewService.class);
+
+    public static final int MAX_FEED_PAGE_SIZE = 50;
+
+    // Feed sort key -> review field; ties are broken by review_id (newest id first)
+    private static final Map<String, String> FEED_SORT_FIELDS = Map.of(
+            "newest", "createdAt",
+            "helpful", "helpfulCount");
+
     @Autowired
     private ReviewRepository reviewRepository;
 
     @Autowired
-    private BookRepository bookRepository;
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private BookCacheService bookCacheService;
 
     @Autowired
     private UserRepository userRepository;
@@ -28,6 +57,12 @@ public class ReviewService {
     @Autowired
     private BookService bookService;
 
+    @Autowired
+    private BookRatingService bookRatingService;
+
+    @Value("${startup.migrations.enabled:true}")
+    private boolean startupMigrations;
+
     // CREATE REVIEW
     public Review createReview(String userId, String bookId, int rating, String reviewText) {
         // Validate rating
@@ -36,8 +71,7 @@ public class ReviewService {
         }
 
         // Check if book exists
-        Optional<Book> bookOptional = bookRepository.findById(bookId);
-        if (bookOptional.isEmpty()) {
+        if (!bookCacheService.existsById(bookId)) {
             throw new RuntimeException("Book not found");
         }
 
@@ -61,10 +95,16 @@ public class ReviewService {
         review.setRating(rating);
         review.setReviewText(reviewText);
 
-        Review savedReview = reviewRepository.save(review);
+        Review savedReview;
+        try {
+            savedReview = reviewRepository.save(review);
+        } catch (DuplicateKeyException e) {
+            // A concurrent request created the review first (unique index on live book_id + userId)
+            throw new IllegalArgumentException("You have already reviewed this book");
+        }
 
-        // Recalculate book's average rating
-        updateBookRating(bookId);
+        // Fold the new rating into the book's counters
+        bookRatingService.reviewAdded(bookId, rating);
 
         return savedReview;
     }
@@ -74,69 +114,171 @@ public class ReviewService {
         return reviewRepository.findByBook_idAndIsDeletedFalse(bookId);
     }
 
-    // GET REVIEW BY ID
-    public Optional<Review> getReviewById(String reviewId) {
-        return reviewRepository.findById(reviewId);
+    // GET REVIEW FEED BY BOOK (cursor-based, newest or most helpful first)
+    public CursorPage<Review> getReviewFeed(String bookId, int pageSize, String cursor, String sortKey) {
+        String field = FEED_SORT_FIELDS.get(sortKey);
+        if (field == null) {
+            throw new IllegalArgumentException("Unsupported sort key: " + sortKey);
+        }
+        if (pageSize < 1 || pageSize > MAX_FEED_PAGE_SIZE) {
+            throw new IllegalArgumentException("pageSize must be between 1 and " + MAX_FEED_PAGE_SIZE);
+        }
+
+        Query query = new Query(Criteria.where("book_id").is(bookId).and("isDeleted").is(false));
+        if (cursor != null && !cursor.isEmpty()) {
+            query.addCriteria(KeysetCursor.decode(cursor, sortKey).after(field, "review_id", Sort.Direction.DESC));
+        }
+        query.with(Sort.by(Sort.Direction.DESC, field).and(Sort.by(Sort.Direction.DESC, "review_id")));
+        query.limit(pageSize + 1); // one extra row tells us whether another page exists
+        query.fields().exclude("helpfulVoterIds");
+
+        List<Review> reviews = mongoTemplate.find(query, Review.class);
+        boolean hasMore = reviews.size() > pageSize;
+        if (hasMore) {
+            reviews = reviews.subList(0, pageSize);
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            Review last = reviews.get(reviews.size() - 1);
+            Object lastValue = "helpful".equals(sortKey) ? (Object) last.getHelpfulCount() : last.getCreatedAt();
+            nextCursor = KeysetCursor.encode(sortKey, lastValue, last.getReview_id());
+        }
+
+        return new CursorPage<>(reviews, nextCursor, hasMore);
     }
 
-    // UPDATE REVIEW (only by owner)
-    @Transactional
-    public Review updateReview(String reviewId, String userId, int rating, String reviewText) {
-        Optional<Review> reviewOptional = reviewRepository.findById(reviewId);
+    // GET RATING SUMMARY (average, count and star histogram straight from the book's counters,
+    // via the book cache, which every rating delta evicts)
+    public RatingSummary getRatingSummary(String bookId) {
+        Book book = bookCacheService.findById(bookId)
+                .orElseThrow(() -> new RuntimeException("Book not found"));
 
-        if (reviewOptional.isEmpty()) {
-            throw new RuntimeException("Review not found");
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int stars = 1; stars <= 5; stars++) {
+            Long count = book.getRatingHistogram() != null ? book.getRatingHistogram().get(String.valueOf(stars)) : null;
+            histogram.put(String.valueOf(stars), count != null ? count : 0L);
         }
 
-        Review review = reviewOptional.get();
+        return new RatingSummary(bookId, book.getRating(), book.getRatingCount(), histogram);
+    }
 
-        // Check if user owns the review
-        if (!review.getUserId().equals(userId)) {
-            throw new RuntimeException("You can only update your own reviews");
+    // MARK REVIEW HELPFUL (one vote per user, not on your own review)
+    public Review markHelpful(String reviewId, String userId) {
+        Query query = new Query(Criteria.where("review_id").is(reviewId)
+                .and("isDeleted").is(false)
+                .and("userId").ne(userId)
+                .and("helpfulVoterIds").ne(userId));
+        query.fields().exclude("helpfulVoterIds");
+
+        Update update = new Update().inc("helpfulCount", 1).addToSet("helpfulVoterIds", userId);
+        Review updated = mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), Review.class);
+        if (updated != null) {
+            return updated;
         }
 
-        if (review.isDeleted()) {
-            throw new RuntimeException("Cannot update deleted review");
+        // Nothing matched; work out why
+        Optional<Review> reviewOptional = reviewRepository.findById(reviewId);
+        if (reviewOptional.isEmpty() || reviewOptional.get().isDeleted()) {
+            throw new RuntimeException("Review not found");
         }
+        if (userId.equals(reviewOptional.get().getUserId())) {
+            throw new IllegalArgumentException("You cannot mark your own review as helpful");
+        }
+        throw new IllegalArgumentException("You have already marked this review as helpful");
+    }
 
+    // Reviews written before helpfulCount existed have no such field; give them 0 so the
+    // "helpful" feed sorts and pages them like every other review
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillHelpfulCounts() {
+        if (!startupMigrations) {
+            return;
+        }
+        try {
+            long updated = mongoTemplate.updateMulti(new Query(Criteria.where("helpfulCount").exists(false)),
+                    new Update().set("helpfulCount", 0), Review.class).getModifiedCount();
+            if (updated > 0) {
+                logger.info("helpfulCount initialised on {} reviews", updated);
+            }
+        } catch (Exception e) {
+            logger.error("Failed to initialise review helpfulCount: {}", e.getMessage());
+        }
+    }
+
+    // GET REVIEW BY ID
+    public Optional<Review> getReviewById(String reviewId) {
+        return reviewRepository.findById(reviewId);
+    }
+
+    // UPDATE REVIEW (only by owner)
+    // One findAndModify on the live review returns the version it replaced, so the rating delta
+    // comes from exactly the rating this edit overwrote, even with concurrent edits or a delete
+    @Transactional
+    public Review updateReview(String reviewId, String userId, int rating, String reviewText) {
         // Validate rating
         if (rating < 1 || rating > 5) {
             throw new IllegalArgumentException("Rating must be between 1 and 5");
         }
 
-        review.setRating(rating);
-        review.setReviewText(reviewText);
-
-        Review updatedReview = reviewRepository.save(review);
+        Query query = new Query(Criteria.where("review_id").is(reviewId)
+                .and("userId").is(userId)
+                .and("isDeleted").is(false));
+        query.fields().exclude("helpfulVoterIds");
+        // Only the edited fields are written; helpfulCount / helpfulVoterIds belong to markHelpful
+        LocalDateTime now = LocalDateTime.now();
+        Update update = new Update()
+                .set("rating", rating)
+                .set("reviewText", reviewText)
+                .set("updatedAt", now);
+
+        Review previous = mongoTemplate.findAndModify(query, update, Review.class);
+        if (previous == null) {
+            // Nothing matched; work out why
+            Review review = reviewRepository.findById(reviewId)
+                    .orElseThrow(() -> new RuntimeException("Review not found"));
+            if (!review.getUserId().equals(userId)) {
+                throw new RuntimeException("You can only update your own reviews");
+            }
+            throw new RuntimeException("Cannot update deleted review");
+        }
 
-        // Recalculate book's average rating
-        updateBookRating(review.getBook_id());
+        // Move the review from its old star bucket to the new one
+        bookRatingService.reviewChanged(previous.getBook_id(), previous.getRating(), rating);
 
-        return updatedReview;
+        previous.setRating(rating);
+        previous.setReviewText(reviewText);
+        previous.setUpdatedAt(now);
+        return previous;
     }
 
     // DELETE REVIEW (soft delete - admin or owner)
+    // Only the request that flips isDeleted takes the rating out of the counters
     @Transactional
     public void deleteReview(String reviewId, String userId, boolean isAdmin) {
-        Optional<Review> reviewOptional = reviewRepository.findById(reviewId);
-
-        if (reviewOptional.isEmpty()) {
-            throw new RuntimeException("Review not found");
+        Criteria criteria = Criteria.where("review_id").is(reviewId).and("isDeleted").is(false);
+        if (!isAdmin) {
+            criteria = criteria.and("userId").is(userId);
         }
-
-        Review review = reviewOptional.get();
-
-        // Check if user owns the review or is admin
-        if (!review.getUserId().equals(userId) && !isAdmin) {
-            throw new RuntimeException("You can only delete your own reviews");
+        Query query = new Query(criteria);
+        query.fields().include("book_id", "userId", "rating");
+
+        Review previous = mongoTemplate.findAndModify(query,
+                new Update().set("isDeleted", true).set("updatedAt", LocalDateTime.now()), Review.class);
+        if (previous == null) {
+            // Nothing matched; work out why
+            Review review = reviewRepository.findById(reviewId)
+                    .orElseThrow(() -> new RuntimeException("Review not found"));
+            if (!review.getUserId().equals(userId) && !isAdmin) {
+                throw new RuntimeException("You can only delete your own reviews");
+            }
+            // Already deleted; its rating is no longer counted
+            return;
         }
 
-        // Soft delete
-        review.setDeleted(true);
-        reviewRepository.save(review);
-
-        // Recalculate book's average rating
-        updateBookRating(review.getBook_id());
+        // Take the rating back out of the book's counters
+        bookRatingService.reviewRemoved(previous.getBook_id(), previous.getRating());
     }
 
     // GET ALL REVIEWS (for admin)
@@ -144,34 +286,8 @@ public class ReviewService {
         return reviewRepository.findAllByIsDeletedFalse();
     }
 
-    // UPDATE BOOK'S AVERAGE RATING
-    private void updateBookRating(String bookId) {
-        List<Review> reviews = reviewRepository.findByBook_idAndIsDeletedFalse(bookId);
-
-        if (reviews.isEmpty()) {
-            // No reviews, set rating to null
-            Optional<Book> bookOptional = bookRepository.findById(bookId);
-            if (bookOptional.isPresent()) {
-                Book book = bookOptional.get();
-                book.setRating(null);
-                bookRepository.save(book);
-            }
-            return;
-        }
-
-        // Calculate average rating
-        double sum = 0;
-        for (Review review : reviews) {
-            sum += review.getRating();
-        }
-        double averageRating = sum / reviews.size();
-
-        // Update book's rating
-        Optional<Book> bookOptional = bookRepository.findById(bookId);
-        if (bookOptional.isPresent()) {
-            Book book = bookOptional.get();
-            book.setRating(averageRating);
-            bookRepository.save(book);
-        }
+    // REBUILD BOOK RATING COUNTERS (repair job over the reviews collection)
+    public int rebuildBookRatings() {
+        return bookRatingService.rebuild();
     }
 }
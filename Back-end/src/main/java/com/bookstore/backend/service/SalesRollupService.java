@@ -0,0 +1,244 @@
+package com.bookstore.backend.service;
+
+import com.bookstore.backend.model.Order;
+import com.bookstore.backend.model.Order.OrderItem;
+import com.bookstore.backend.model.SalesRollup;
+import com.bookstore.backend.repository.SalesRollupRepository;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AccumulatorOperators;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
+
+// Keeps the sales_rollups counters in step with orders so reports never rescan order history
+@Service
+public class SalesRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SalesRollupService.class);
+
+    public static final String TYPE_DAY = "DAY";
+    public static final String TYPE_MONTH = "MONTH";
+    public static final String TYPE_BOOK = "BOOK";
+    public static final String TYPE_STATUS = "STATUS";
+
+    private static final String BACKFILL_MARKER_ID = "META:backfill";
+
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private SalesRollupRepository salesRollupRepository;
+
+    private volatile boolean backfilled = false;
+
+    // Called after a new order has been saved
+    public void recordOrderPlaced(Order order) {
+        long itemsSold = countItems(order);
+        LocalDateTime now = LocalDateTime.now();
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SalesRollup.class);
+
+        if (order.getOrderDate() != null) {
+            upsertDelta(bulk, TYPE_DAY, order.getOrderDate().format(DAY_FORMAT), 1, order.getTotalAmount(), itemsSold, now);
+            upsertDelta(bulk, TYPE_MONTH, order.getOrderDate().format(MONTH_FORMAT), 1, order.getTotalAmount(), itemsSold, now);
+        }
+        upsertDelta(bulk, TYPE_STATUS, order.getStatus(), 1, order.getTotalAmount(), itemsSold, now);
+
+        if (order.getItems() != null) {
+            for (OrderItem item : order.getItems()) {
+                Update update = deltaUpdate(TYPE_BOOK, item.getBook_id(), 1, item.getPrice() * item.getQuantity(),
+                        item.getQuantity(), now)
+                        .set("title", item.getTitle())
+                        .set("price", item.getPrice());
+                bulk.upsert(new Query(Criteria.where("rollupId").is(rollupId(TYPE_BOOK, item.getBook_id()))), update);
+            }
+        }
+
+        bulk.execute();
+    }
+
+    // Called after an order has moved from one status to another
+    public void recordStatusChange(Order order, String oldStatus, String newStatus) {
+        long itemsSold = countItems(order);
+        LocalDateTime now = LocalDateTime.now();
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SalesRollup.class);
+        upsertDelta(bulk, TYPE_STATUS, oldStatus, -1, -order.getTotalAmount(), -itemsSold, now);
+        upsertDelta(bulk, TYPE_STATUS, newStatus, 1, order.getTotalAmount(), itemsSold, now);
+        bulk.execute();
+    }
+
+    public List<SalesRollup> getRollups(String type) {
+        ensureBackfilled();
+        return salesRollupRepository.findByType(type);
+    }
+
+    public List<SalesRollup> getRollupsNewestFirst(String type) {
+        ensureBackfilled();
+        return salesRollupRepository.findByTypeOrderByKeyDesc(type);
+    }
+
+    // Best sellers by units sold; the sort and limit run in MongoDB (top-k sort)
+    public List<SalesRollup> getTopBooks(int limit) {
+        ensureBackfilled();
+        Query query = new Query(Criteria.where("type").is(TYPE_BOOK))
+                .with(Sort.by(Sort.Direction.DESC, "itemsSold").and(Sort.by(Sort.Direction.ASC, "key")))
+                .limit(limit);
+        return mongoTemplate.find(query, SalesRollup.class);
+    }
+
+    // The first report after deployment seeds the rollups from existing orders
+    public void ensureBackfilled() {
+        if (backfilled) {
+            return;
+        }
+        synchronized (this) {
+            if (!backfilled && !salesRollupRepository.existsById(BACKFILL_MARKER_ID)) {
+                backfill();
+            }
+            backfilled = true;
+        }
+    }
+
+    // One-off rebuild of every rollup from the orders collection.
+    // Orders placed while this runs may be counted slightly off until the next rebuild.
+    public synchronized void backfill() {
+        long startTime = System.currentTimeMillis();
+        LocalDateTime stamp = LocalDateTime.now();
+        DateOperators.Timezone timezone = DateOperators.Timezone.fromZone(ZoneId.systemDefault());
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SalesRollup.class);
+        int written = 0;
+
+        written += writeTotals(bulk, TYPE_STATUS, newAggregation(
+                group("status")
+                        .count().as("orderCount")
+                        .sum("totalAmount").as("revenue")
+                        .sum(AccumulatorOperators.Sum.sumOf("items.quantity")).as("itemsSold")), stamp);
+
+        written += writeTotals(bulk, TYPE_DAY, periodAggregation("%Y-%m-%d", timezone), stamp);
+        written += writeTotals(bulk, TYPE_MONTH, periodAggregation("%Y-%m", timezone), stamp);
+
+        written += writeTotals(bulk, TYPE_BOOK, newAggregation(
+                unwind("items"),
+                group("items.book_id")
+                        .count().as("orderCount")
+                        .sum("items.quantity").as("itemsSold")
+                        .sum(ArithmeticOperators.Multiply.valueOf("items.price").multiplyBy("items.quantity"))
+                        .as("revenue")
+                        .last("items.title").as("title")
+                        .last("items.price").as("price")), stamp);
+
+        if (written > 0) {
+            bulk.execute();
+        }
+
+        // Anything not rewritten above no longer has orders behind it
+        mongoTemplate.remove(new Query(Criteria.where("type").in(TYPE_DAY, TYPE_MONTH, TYPE_BOOK, TYPE_STATUS)
+                .and("updatedAt").lt(stamp)), SalesRollup.class);
+
+        SalesRollup marker = new SalesRollup();
+        marker.setRollupId(BACKFILL_MARKER_ID);
+        marker.setType("META");
+        marker.setKey("backfill");
+        marker.setUpdatedAt(stamp);
+        salesRollupRepository.save(marker);
+
+        backfilled = true;
+        logger.info("Sales rollups rebuilt: {} rollups in {} ms", written, System.currentTimeMillis() - startTime);
+    }
+
+    private Aggregation periodAggregation(String format, DateOperators.Timezone timezone) {
+        return newAggregation(
+                match(Criteria.where("orderDate").ne(null)),
+                project("totalAmount")
+                        .and(DateOperators.DateToString.dateOf("orderDate").toString(format).withTimezone(timezone))
+                        .as("period")
+                        .and(AccumulatorOperators.Sum.sumOf("items.quantity")).as("itemsSold"),
+                group("period")
+                        .count().as("orderCount")
+                        .sum("totalAmount").as("revenue")
+                        .sum("itemsSold").as("itemsSold"));
+    }
+
+    private int writeTotals(BulkOperations bulk, String type, Aggregation aggregation, LocalDateTime stamp) {
+        List<Document> rows = mongoTemplate.aggregate(aggregation, Order.class, Document.class).getMappedResults();
+
+        for (Document row : rows) {
+            String key = row.get("_id") != null ? row.get("_id").toString() : null;
+            Update update = new Update()
+                    .set("type", type)
+                    .set("key", key)
+                    .set("orderCount", longValue(row, "orderCount"))
+                    .set("revenue", doubleValue(row, "revenue"))
+                    .set("itemsSold", longValue(row, "itemsSold"))
+                    .set("updatedAt", stamp);
+            if (TYPE_BOOK.equals(type)) {
+                update.set("title", row.getString("title")).set("price", doubleValue(row, "price"));
+            }
+            bulk.upsert(new Query(Criteria.where("rollupId").is(rollupId(type, key))), update);
+        }
+        return rows.size();
+    }
+
+    private void upsertDelta(BulkOperations bulk, String type, String key, long orders, double revenue,
+            long itemsSold, LocalDateTime now) {
+        bulk.upsert(new Query(Criteria.where("rollupId").is(rollupId(type, key))),
+                deltaUpdate(type, key, orders, revenue, itemsSold, now));
+    }
+
+    private Update deltaUpdate(String type, String key, long orders, double revenue, long itemsSold,
+            LocalDateTime now) {
+        return new Update()
+                .inc("orderCount", orders)
+                .inc("revenue", revenue)
+                .inc("itemsSold", itemsSold)
+                .set("type", type)
+                .set("key", key)
+                .set("updatedAt", now);
+    }
+
+    private static String rollupId(String type, String key) {
+        return type + ":" + key;
+    }
+
+    private static long countItems(Order order) {
+        long itemsSold = 0;
+        if (order.getItems() != null) {
+            for (OrderItem item : order.getItems()) {
+                itemsSold += item.getQuantity();
+            }
+        }
+        return itemsSold;
+    }
+
+    private static long longValue(Document document, String key) {
+        Object value = document.get(key);
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+
+    private static double doubleValue(Document document, String key) {
+        Object value = document.get(key);
+        return value instanceof Number ? ((Number) value).doubleValue() : 0;
+    }
+}
@@ -0,0 +1,264 @@
+package com.bookstore.backend.service;
+
+import com.bookstore.backend.dto.StockAvailability;
+import com.bookstore.backend.model.Book;
+import com.bookstore.backend.model.StockReservation;
+import com.bookstore.backend.repository.StockReservationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+// Time-limited stock holds for carts and checkout. A hold raises Book.reservedQuantity,
+// so available-to-sell is always stockQuantity - reservedQuantity without counting reservations.
+// Holds end by commit (placeOrder), release, or expiry via the sweeper.
+@Service
+public class StockReservationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationService.class);
+
+    public static final String STATUS_ACTIVE = "ACTIVE";
+    public static final String STATUS_COMMITTED = "COMMITTED";
+    public static final String STATUS_RELEASED = "RELEASED";
+    public static final String STATUS_EXPIRED = "EXPIRED";
+
+    @Autowired
+    private StockReservationRepository reservationRepository;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${inventory.reservations.ttl-seconds:900}")
+    private int defaultTtlSeconds;
+
+    @Value("${inventory.reservations.max-ttl-seconds:3600}")
+    private int maxTtlSeconds;
+
+    @Value("${inventory.reservations.sweep-batch-size:500}")
+    private int sweepBatchSize;
+
+    // Per-user caps, so one account cannot hold a title's whole stock
+    @Value("${inventory.reservations.max-active-per-user:10}")
+    private int maxActivePerUser;
+
+    @Value("${inventory.reservations.max-quantity-per-user:20}")
+    private int maxQuantityPerUser;
+
+    public StockReservation reserve(String userId, String bookId, int quantity, Integer ttlSeconds) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be greater than zero");
+        }
+        int ttl = ttlSeconds != null ? ttlSeconds : defaultTtlSeconds;
+        if (ttl <= 0 || ttl > maxTtlSeconds) {
+            throw new IllegalArgumentException("ttlSeconds must be between 1 and " + maxTtlSeconds);
+        }
+
+        checkUserLimits(userId, quantity, 1);
+
+        Book book = inventoryService.reserveStock(bookId, quantity);
+        if (book == null) {
+            StockAvailability availability = getAvailability(bookId);
+            throw new IllegalArgumentException("Insufficient stock for book ID " + bookId +
+                    ". Available: " + availability.getAvailableQuantity());
+        }
+
+        StockReservation reservation = new StockReservation();
+        reservation.setBookId(bookId);
+        reservation.setUserId(userId);
+        reservation.setQuantity(quantity);
+        reservation.setExpiresAt(reservation.getCreatedAt().plusSeconds(ttl));
+
+        StockReservation saved;
+        try {
+            saved = reservationRepository.save(reservation);
+        } catch (RuntimeException e) {
+            inventoryService.releaseReservedStock(bookId, quantity);
+            throw e;
+        }
+
+        // Concurrent requests can all pass the check above; with this hold counted, back it out
+        // if the user is now over a cap
+        try {
+            checkUserLimits(userId, 0, 0);
+        } catch (IllegalArgumentException e) {
+            if (transition(saved.getReservation_id(), STATUS_RELEASED, null, false) != null) {
+                inventoryService.releaseReservedStock(bookId, quantity);
+            }
+            throw e;
+        }
+        return saved;
+    }
+
+    public Optional<StockReservation> findById(String reservationId) {
+        return reservationRepository.findById(reservationId);
+    }
+
+    public List<StockReservation> findActiveByUser(String userId) {
+        return reservationRepository.findByUserIdAndStatus(userId, STATUS_ACTIVE);
+    }
+
+    // Gives the held units back; only the owner (or an admin) may release
+    public StockReservation release(String reservationId, String userId, boolean isAdmin) {
+        StockReservation reservation = reservationRepository.findById(reservationId)
+                .orElseThrow(() -> new RuntimeException("Reservation not found"));
+        if (!isAdmin && !reservation.getUserId().equals(userId)) {
+            throw new SecurityException("You can only release your own reservations");
+        }
+
+        StockReservation released = transition(reservationId, STATUS_RELEASED, null, false);
+        if (released == null) {
+            throw new IllegalArgumentException("Reservation is no longer active");
+        }
+        inventoryService.releaseReservedStock(released.getBookId(), released.getQuantity());
+        return released;
+    }
+
+    // Called by OrderService for a line that carries a reservationId: the hold becomes the sale
+    public Book commit(String reservationId, String userId, String bookId, int quantity) {
+        StockReservation reservation = reservationRepository.findById(reservationId)
+                .orElseThrow(() -> new IllegalArgumentException("Reservation " + reservationId + " not found"));
+        if (!reservation.getUserId().equals(userId) || !reservation.getBookId().equals(bookId)
+                || reservation.getQuantity() != quantity) {
+            throw new IllegalArgumentException("Reservation " + reservationId + " does not match the order line");
+        }
+
+        StockReservation committed = transition(reservationId, STATUS_COMMITTED, null, true);
+        if (committed == null) {
+            throw new IllegalArgumentException("Reservation " + reservationId + " has expired or is no longer active");
+        }
+
+        Book book = inventoryService.commitReservedStock(bookId, quantity);
+        if (book == null) {
+            // Stock is now below the held amount (or the counters drifted). Hand the reservation back
+            // to ACTIVE so it still expires or can be released, and its units leave reservedQuantity.
+            reopen(reservationId);
+            logger.error("Reservation {} could not be committed: book {} has no matching held stock",
+                    reservationId, bookId);
+            throw new IllegalStateException("Reserved stock for book ID " + bookId + " is no longer held");
+        }
+        return book;
+    }
+
+    // Order placement failed after commit (e.g. another line was out of stock): the units are held
+    // again and the reservation is ACTIVE, so the customer keeps the hold until it expires.
+    // Stock moves first, so the sweeper never releases a hold whose units are not yet held.
+    public void undoCommit(String reservationId, String bookId, int quantity) {
+        if (inventoryService.uncommitReservedStock(bookId, quantity) == null) {
+            logger.error("Could not return {} units of book {} to reservation {}", quantity, bookId, reservationId);
+            return;
+        }
+
+        StockReservation reopened = reopen(reservationId);
+        if (reopened == null) {
+            // Not COMMITTED any more; do not keep units held for it
+            inventoryService.releaseReservedStock(bookId, quantity);
+            return;
+        }
+
+        // The hold ran out while the order was being placed: expire it now rather than wait for the sweep
+        LocalDateTime now = LocalDateTime.now();
+        if (!reopened.getExpiresAt().isAfter(now)
+                && transition(reservationId, STATUS_EXPIRED, now, false) != null) {
+            inventoryService.releaseReservedStock(bookId, quantity);
+        }
+    }
+
+    public void attachOrder(String reservationId, String orderId) {
+        mongoTemplate.updateFirst(new Query(Criteria.where("reservation_id").is(reservationId)),
+                new Update().set("orderId", orderId), StockReservation.class);
+    }
+
+    public StockAvailability getAvailability(String bookId) {
+        Book book = inventoryService.getStockCounters(bookId);
+        if (book == null) {
+            throw new RuntimeException("Book not found");
+        }
+        int available = Math.max(0, book.getStockQuantity() - book.getReservedQuantity());
+        return new StockAvailability(bookId, book.getStockQuantity(), book.getReservedQuantity(), available);
+    }
+
+    // Releases holds whose TTL has passed, oldest first, using the (status, expiresAt) index
+    @Scheduled(fixedDelayString = "${inventory.reservations.sweep-interval-ms:30000}",
+            initialDelayString = "${inventory.reservations.sweep-interval-ms:30000}")
+    public void expireReservations() {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = new Query(Criteria.where("status").is(STATUS_ACTIVE).and("expiresAt").lte(now))
+                .with(Sort.by(Sort.Direction.ASC, "expiresAt"))
+                .limit(sweepBatchSize);
+        query.fields().include("reservation_id");
+
+        int expired = 0;
+        for (StockReservation candidate : mongoTemplate.find(query, StockReservation.class)) {
+            // The transition only wins if nobody committed or released it in the meantime
+            StockReservation reservation = transition(candidate.getReservation_id(), STATUS_EXPIRED, now, false);
+            if (reservation != null) {
+                inventoryService.releaseReservedStock(reservation.getBookId(), reservation.getQuantity());
+                expired++;
+            }
+        }
+
+        if (expired > 0) {
+            logger.info("Expired {} stock reservations", expired);
+        }
+    }
+
+    // Rejects the request if the user's unexpired holds plus the new one exceed either cap
+    private void checkUserLimits(String userId, int extraQuantity, int extraHolds) {
+        Query query = new Query(Criteria.where("userId").is(userId)
+                .and("status").is(STATUS_ACTIVE)
+                .and("expiresAt").gt(LocalDateTime.now()));
+        query.fields().include("quantity");
+
+        int holds = extraHolds;
+        long heldQuantity = extraQuantity;
+        for (StockReservation reservation : mongoTemplate.find(query, StockReservation.class)) {
+            holds++;
+            heldQuantity += reservation.getQuantity();
+        }
+
+        if (holds > maxActivePerUser) {
+            throw new IllegalArgumentException("At most " + maxActivePerUser + " active reservations per user");
+        }
+        if (heldQuantity > maxQuantityPerUser) {
+            throw new IllegalArgumentException("At most " + maxQuantityPerUser + " reserved units per user");
+        }
+    }
+
+    // Hands a COMMITTED reservation back to ACTIVE; null if it was not COMMITTED
+    private StockReservation reopen(String reservationId) {
+        return mongoTemplate.findAndModify(new Query(Criteria.where("reservation_id").is(reservationId)
+                        .and("status").is(STATUS_COMMITTED)),
+                new Update().set("status", STATUS_ACTIVE),
+                FindAndModifyOptions.options().returnNew(true), StockReservation.class);
+    }
+
+    // Atomically moves an ACTIVE reservation to newStatus; null if it was not ACTIVE
+    // (or, with requireUnexpired, already past its expiresAt)
+    private StockReservation transition(String reservationId, String newStatus, LocalDateTime expiredBefore,
+            boolean requireUnexpired) {
+        Criteria criteria = Criteria.where("reservation_id").is(reservationId).and("status").is(STATUS_ACTIVE);
+        if (expiredBefore != null) {
+            criteria = criteria.and("expiresAt").lte(expiredBefore);
+        } else if (requireUnexpired) {
+            criteria = criteria.and("expiresAt").gt(LocalDateTime.now());
+        }
+
+        return mongoTemplate.findAndModify(new Query(criteria), new Update().set("status", newStatus),
+                FindAndModifyOptions.options().returnNew(true), StockReservation.class);
+    }
+}
@@ -6,6 +6,10 @@ import com.bookstore.backend.repository.UserRepository;
 
 import org.springframework.beans.factory.annotation.Autowired;
 
+import org.springframework.beans.factory.annotation.Qualifier;
+
+import org.springframework.dao.DuplicateKeyException;
+
 import org.springframework.stereotype.Service;
 
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -18,6 +22,10 @@ import java.util.List;
 
 import java.util.Optional;
 
+import java.util.concurrent.CompletableFuture;
+
+import java.util.concurrent.Executor;
+
 @Service
 
 public class UserService {
@@ -32,6 +40,19 @@ public class UserService {
 
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+
+    private PasswordHashingService passwordHashingService;
+
+    // Spring's application task executor: the database write after hashing runs here, so Mongo
+    // latency never occupies the CPU-sized hashing pool
+
+    @Autowired
+
+    @Qualifier("applicationTaskExecutor")
+
+    private Executor ioExecutor;
+
     // 1. REGISTRATION
 
     public User registerUser(User user) {
@@ -48,6 +69,34 @@ public class UserService {
 
         user.setPassword(hashedPassword);
 
+        return saveNewUser(user);
+
+    }
+
+    // 1b. REGISTRATION (hashing runs on the password hashing pool, not the request thread)
+
+    public CompletableFuture<User> registerUserAsync(User user) {
+
+        if (userRepository.findByEmail(user.getEmail()).isPresent()) {
+
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Email already in use."));
+
+        }
+
+        return passwordHashingService.encode(user.getPassword())
+
+                .thenApplyAsync(hashedPassword -> {
+
+                    user.setPassword(hashedPassword);
+
+                    return saveNewUser(user);
+
+                }, ioExecutor);
+
+    }
+
+    private User saveNewUser(User user) {
+
         try {
 
             User savedUser = userRepository.save(user);
@@ -74,6 +123,12 @@ public class UserService {
 
             return savedUser;
 
+        } catch (DuplicateKeyException e) {
+
+            // Lost a race with another registration for the same email (unique index on users.email)
+
+            throw new IllegalArgumentException("Email already in use.");
+
         } catch (Exception e) {
 
             logger.error("Failed to save user to database: {}", e.getMessage(), e);
@@ -92,27 +147,23 @@ public class UserService {
 
     }
 
-    // 7. LOGIN
+    // 7. LOGIN (user lookup on the request thread, BCrypt match on the password hashing pool)
 
-    public Optional<User> authenticate(String email, String password) {
+    public CompletableFuture<Optional<User>> authenticateAsync(String email, String password) {
 
         Optional<User> userOptional = userRepository.findByEmail(email);
 
-        if (userOptional.isPresent()) {
-
-            User user = userOptional.get();
-
-            // Compare the plain-text password with the stored hashed password
+        if (userOptional.isEmpty()) {
 
-            if (passwordEncoder.matches(password, user.getPassword())) {
+            return CompletableFuture.completedFuture(Optional.empty());
 
-                return Optional.of(user);
+        }
 
-            }
+        User user = userOptional.get();
 
-        }
+        return passwordHashingService.matches(password, user.getPassword())
 
-        return Optional.empty();
+                .thenApply(matches -> matches ? Optional.of(user) : Optional.<User>empty());
 
     }
 
@@ -0,0 +1,43 @@
+package com.bookstore.backend.util;
+
+import java.security.Principal;
+
+// Principal built from a verified JWT, so controllers can read the caller without re-parsing the token
+public class AuthenticatedUser implements Principal {
+
+    private final String email;
+    private final String userId;
+    private final String role;
+
+    public AuthenticatedUser(String email, String userId, String role) {
+        this.email = email;
+        this.userId = userId;
+        this.role = role;
+    }
+
+    @Override
+    public String getName() {
+        return email;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public boolean isAdmin() {
+        return "ADMIN".equals(role);
+    }
+
+    @Override
+    public String toString() {
+        return email;
+    }
+}
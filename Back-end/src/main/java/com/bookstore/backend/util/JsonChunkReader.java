@@ -0,0 +1,60 @@
+package com.bookstore.backend.util;
+
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.MappingIterator;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectReader;
+
+import java.io.Closeable;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+// Reads a request body item by item, so large uploads are never held in memory as a whole.
+// Accepts either a JSON array or newline-delimited JSON (one object per line), or any other
+// format Jackson can stream (e.g. CSV) when given a reader configured for it.
+public final class JsonChunkReader<T> implements Closeable {
+
+    private final MappingIterator<T> iterator;
+    private int itemsRead = 0;
+    private String error;
+
+    public JsonChunkReader(ObjectMapper objectMapper, InputStream body, Class<T> itemType) {
+        this(objectMapper.readerFor(itemType), body);
+    }
+
+    public JsonChunkReader(ObjectReader itemReader, InputStream body) {
+        this.iterator = itemReader.readValues(body);
+    }
+
+    // Next chunk of at most chunkSize items; empty when the body is exhausted or unreadable.
+    // Malformed input ends the stream: the items read so far are returned and getError() says why.
+    public List<T> nextChunk(int chunkSize) {
+        List<T> chunk = new ArrayList<>(chunkSize);
+        if (error != null) {
+            return chunk;
+        }
+        try {
+            while (chunk.size() < chunkSize && iterator.hasNextValue()) {
+                chunk.add(iterator.nextValue());
+                itemsRead++;
+            }
+        } catch (JacksonException e) {
+            error = "Malformed input after item " + itemsRead + ": " + e.getOriginalMessage();
+        }
+        return chunk;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public int getItemsRead() {
+        return itemsRead;
+    }
+
+    @Override
+    public void close() {
+        iterator.close();
+    }
+}
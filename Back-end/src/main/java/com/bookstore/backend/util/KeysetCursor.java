@@ -0,0 +1,124 @@
+package com.bookstore.backend.util;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+// Opaque cursor for keyset pagination: remembers the sort value and id of the last row served
+public final class KeysetCursor {
+
+    private static final String SEPARATOR = "\u0000";
+
+    private final String sortKey;
+    private final Object value;
+    private final String id;
+
+    private KeysetCursor(String sortKey, Object value, String id) {
+        this.sortKey = sortKey;
+        this.value = value;
+        this.id = id;
+    }
+
+    public String getSortKey() {
+        return sortKey;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public static String encode(String sortKey, Object value, String id) {
+        String raw = sortKey + SEPARATOR + encodeValue(value) + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor decode(String token, String expectedSortKey) {
+        String[] parts;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            parts = raw.split(SEPARATOR, -1);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+
+        if (parts.length != 3 || !parts[0].equals(expectedSortKey) || parts[2].isEmpty()) {
+            throw new IllegalArgumentException("Cursor does not match the requested sort");
+        }
+
+        return new KeysetCursor(parts[0], decodeValue(parts[1]), parts[2]);
+    }
+
+    // Criteria selecting rows strictly after this cursor for a (field, id) sort in the given direction.
+    // Nulls sort first ascending and last descending, same as MongoDB.
+    public Criteria after(String field, String idField, Sort.Direction direction) {
+        boolean ascending = direction.isAscending();
+        Criteria idAfter = ascending ? Criteria.where(idField).gt(id) : Criteria.where(idField).lt(id);
+
+        if (field.equals(idField)) {
+            return idAfter;
+        }
+
+        if (value == null) {
+            Criteria sameNullValue = new Criteria().andOperator(Criteria.where(field).is(null), idAfter);
+            return ascending
+                    ? new Criteria().orOperator(sameNullValue, Criteria.where(field).ne(null))
+                    : sameNullValue;
+        }
+
+        Criteria pastValue = ascending ? Criteria.where(field).gt(value) : Criteria.where(field).lt(value);
+        Criteria sameValue = new Criteria().andOperator(Criteria.where(field).is(value), idAfter);
+        return ascending
+                ? new Criteria().orOperator(pastValue, sameValue)
+                : new Criteria().orOperator(pastValue, sameValue, Criteria.where(field).is(null));
+    }
+
+    private static String encodeValue(Object value) {
+        if (value == null) {
+            return "n:";
+        } else if (value instanceof Double || value instanceof Float) {
+            return "d:" + value;
+        } else if (value instanceof Integer || value instanceof Long) {
+            return "l:" + value;
+        } else if (value instanceof LocalDate) {
+            return "D:" + value;
+        } else if (value instanceof LocalDateTime) {
+            return "T:" + value;
+        }
+        return "s:" + value;
+    }
+
+    private static Object decodeValue(String encoded) {
+        if (encoded.length() < 2 || encoded.charAt(1) != ':') {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        String text = encoded.substring(2);
+        try {
+            switch (encoded.charAt(0)) {
+                case 'n':
+                    return null;
+                case 'd':
+                    return Double.valueOf(text);
+                case 'l':
+                    return Long.valueOf(text);
+                case 'D':
+                    return LocalDate.parse(text);
+                case 'T':
+                    return LocalDateTime.parse(text);
+                case 's':
+                    return text;
+                default:
+                    throw new IllegalArgumentException("Invalid cursor");
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -3,7 +3,8 @@ package com.bookstore.backend;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+// Startup migrations would each wait for MongoDB, which tests do not have
+@SpringBootTest(properties = "startup.migrations.enabled=false")
 class BackendApplicationTests {
 
 	@Test
@@ -0,0 +1,49 @@
+package com.bookstore.backend.config;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.mongodb.MongoDBContainer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Creates the declared indexes on a real MongoDB and fails if any finder still plans a COLLSCAN
+@Testcontainers(disabledWithoutDocker = true)
+class MongoIndexInitializerTest {
+
+	@Container
+	static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+	private static MongoClient client;
+	private static MongoIndexInitializer initializer;
+
+	@BeforeAll
+	static void createIndexes() {
+		client = MongoClients.create(mongo.getConnectionString());
+		initializer = new MongoIndexInitializer();
+		ReflectionTestUtils.setField(initializer, "mongoTemplate", new MongoTemplate(client, "bookstore_test"));
+
+		assertEquals(0, initializer.ensureIndexes(), "every declared index should be created");
+	}
+
+	@AfterAll
+	static void closeClient() {
+		if (client != null) {
+			client.close();
+		}
+	}
+
+	@Test
+	void noFinderRunsAsCollectionScan() {
+		assertTrue(initializer.findCollectionScans().isEmpty(),
+				() -> "finders planned as COLLSCAN: " + initializer.findCollectionScans());
+	}
+
+}
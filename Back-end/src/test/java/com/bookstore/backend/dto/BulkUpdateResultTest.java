@@ -0,0 +1,39 @@
+package com.bookstore.backend.dto;
+
+import com.bookstore.backend.dto.BulkUpdateResult.ItemResult;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkUpdateResultTest {
+
+	@Test
+	void countsUpdatedItemsWithoutListingThem() {
+		BulkUpdateResult result = new BulkUpdateResult();
+		result.add(new ItemResult(0, "b1", ItemResult.UPDATED, null));
+		result.add(new ItemResult(1, "b2", ItemResult.UPDATED, null));
+
+		assertEquals(2, result.getTotal());
+		assertEquals(2, result.getUpdated());
+		assertEquals(0, result.getFailed());
+		assertTrue(result.getFailures().isEmpty());
+	}
+
+	@Test
+	void listsFailuresUpToTheCapButCountsAll() {
+		BulkUpdateResult result = new BulkUpdateResult();
+		int failures = BulkUpdateResult.MAX_REPORTED_FAILURES + 25;
+		for (int i = 0; i < failures; i++) {
+			result.add(new ItemResult(i, "b" + i, i % 2 == 0 ? ItemResult.NOT_FOUND : ItemResult.INVALID, "bad"));
+		}
+		result.add(new ItemResult(failures, "ok", ItemResult.UPDATED, null));
+
+		assertEquals(failures + 1, result.getTotal());
+		assertEquals(1, result.getUpdated());
+		assertEquals(failures, result.getFailed());
+		assertEquals(BulkUpdateResult.MAX_REPORTED_FAILURES, result.getFailures().size());
+		assertEquals(0, result.getFailures().get(0).getIndex());
+	}
+
+}
@@ -0,0 +1,23 @@
+package com.bookstore.backend.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MessageBucketTest {
+
+	@Test
+	void bucketNoGroupsConsecutiveSeqs() {
+		assertEquals(0, MessageBucket.bucketNo(0));
+		assertEquals(0, MessageBucket.bucketNo(MessageBucket.MESSAGES_PER_BUCKET - 1));
+		assertEquals(1, MessageBucket.bucketNo(MessageBucket.MESSAGES_PER_BUCKET));
+		assertEquals(7, MessageBucket.bucketNo(7L * MessageBucket.MESSAGES_PER_BUCKET + 42));
+	}
+
+	@Test
+	void bucketIdCombinesConversationAndBucketNo() {
+		assertEquals("c1:0", MessageBucket.bucketId("c1", 0));
+		assertEquals("c1:12", MessageBucket.bucketId("c1", 12));
+	}
+
+}
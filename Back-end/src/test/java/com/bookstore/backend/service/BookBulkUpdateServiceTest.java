@@ -0,0 +1,144 @@
+package com.bookstore.backend.service;
+
+import com.bookstore.backend.dto.BulkUpdateResult;
+import com.bookstore.backend.dto.BulkUpdateResult.ItemResult;
+import com.bookstore.backend.event.StockLevelChangedEvent;
+import com.bookstore.backend.model.Book;
+import com.bookstore.backend.repository.BookRepository;
+import com.mongodb.bulk.BulkWriteError;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BookBulkUpdateServiceTest {
+
+	@Mock
+	private MongoTemplate mongoTemplate;
+
+	@Mock
+	private BookRepository bookRepository;
+
+	@Mock
+	private BookSearchService bookSearchService;
+
+	@Mock
+	private BookCacheService bookCacheService;
+
+	@Mock
+	private ApplicationEventPublisher eventPublisher;
+
+	@Mock
+	private BulkOperations bulk;
+
+	@InjectMocks
+	private BookBulkUpdateService bulkUpdateService;
+
+	@BeforeEach
+	void setUp() {
+		ObjectMapper objectMapper = JsonMapper.builder().build();
+		ReflectionTestUtils.setField(bulkUpdateService, "objectMapper", objectMapper);
+		ReflectionTestUtils.setField(bulkUpdateService, "chunkSize", 1000);
+		when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Book.class)).thenReturn(bulk);
+	}
+
+	@Test
+	void mapsEachItemToItsOutcomeAndListsOnlyFailures() {
+		when(mongoTemplate.find(any(Query.class), eq(Book.class))).thenReturn(List.of(book("b1"), book("b2")));
+
+		BulkUpdateResult result = bulkUpdateService.updateStock(body(
+				"{\"bookId\": \"b1\", \"stockQuantity\": 1}\n"
+						+ "{\"bookId\": \"b1\", \"stockQuantity\": 7}\n"
+						+ "{\"bookId\": \"b2\", \"stockQuantity\": -1}\n"
+						+ "{\"stockQuantity\": 3}\n"
+						+ "{\"bookId\": \"b9\", \"stockQuantity\": 2}\n"));
+
+		assertEquals(5, result.getTotal());
+		assertEquals(1, result.getUpdated());
+		assertEquals(4, result.getFailed());
+		assertNull(result.getError());
+
+		Map<Integer, String> statusByIndex = result.getFailures().stream()
+				.collect(Collectors.toMap(ItemResult::getIndex, ItemResult::getStatus));
+		assertEquals(Map.of(
+				0, ItemResult.INVALID, // superseded by item 1
+				2, ItemResult.INVALID,
+				3, ItemResult.INVALID,
+				4, ItemResult.NOT_FOUND), statusByIndex);
+
+		// Only the surviving b1 item is written, and its stock change is published
+		verify(bulk, times(1)).updateOne(any(Query.class), any(Update.class));
+		verify(eventPublisher).publishEvent(any(StockLevelChangedEvent.class));
+	}
+
+	@Test
+	void reportsWriteErrorsAgainstTheirItems() {
+		when(mongoTemplate.find(any(Query.class), eq(Book.class))).thenReturn(List.of(book("b1"), book("b2")));
+		BulkOperationException failure = mock(BulkOperationException.class);
+		when(failure.getErrors()).thenReturn(List.of(new BulkWriteError(121, "Document failed validation",
+				new BsonDocument(), 1)));
+		when(bulk.execute()).thenThrow(failure);
+
+		BulkUpdateResult result = bulkUpdateService.updateStock(body(
+				"[{\"bookId\": \"b1\", \"stockQuantity\": 4}, {\"bookId\": \"b2\", \"stockQuantity\": 5}]"));
+
+		assertEquals(1, result.getUpdated());
+		assertEquals(1, result.getFailed());
+		ItemResult failed = result.getFailures().get(0);
+		assertEquals(1, failed.getIndex());
+		assertEquals("b2", failed.getBookId());
+		assertEquals(ItemResult.FAILED, failed.getStatus());
+	}
+
+	@Test
+	void malformedInputKeepsItemsReadSoFar() {
+		when(mongoTemplate.find(any(Query.class), eq(Book.class))).thenReturn(List.of(book("b1")));
+
+		BulkUpdateResult result = bulkUpdateService.updateStock(body(
+				"{\"bookId\": \"b1\", \"stockQuantity\": 4}\n{\"bookId\": "));
+
+		assertEquals(1, result.getUpdated());
+		assertNotNull(result.getError());
+	}
+
+	private static ByteArrayInputStream body(String json) {
+		return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static Book book(String bookId) {
+		Book book = new Book();
+		book.setBook_id(bookId);
+		book.setTitle("Title " + bookId);
+		return book;
+	}
+
+}
@@ -0,0 +1,114 @@
+package com.bookstore.backend.service;
+
+import com.bookstore.backend.model.Book;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BookRatingServiceTest {
+
+	@Mock
+	private MongoTemplate mongoTemplate;
+
+	@Mock
+	private BookCacheService bookCacheService;
+
+	@InjectMocks
+	private BookRatingService bookRatingService;
+
+	@Test
+	void reviewAddedIncrementsCountersAndSyncsAverage() {
+		ArgumentCaptor<UpdateDefinition> delta = ArgumentCaptor.forClass(UpdateDefinition.class);
+		when(mongoTemplate.findAndModify(any(Query.class), delta.capture(), any(FindAndModifyOptions.class), eq(Book.class)))
+				.thenReturn(counters("b1", 9, 2));
+
+		bookRatingService.reviewAdded("b1", 4);
+
+		assertEquals(new Document("ratingSum", 4).append("ratingCount", 1).append("ratingHistogram.4", 1),
+				delta.getValue().getUpdateObject().get("$inc"));
+		assertRatingSynced("b1", 9, 2, 4.5);
+		verify(bookCacheService).evict("b1");
+	}
+
+	@Test
+	void reviewRemovedDecrementsCounters() {
+		ArgumentCaptor<UpdateDefinition> delta = ArgumentCaptor.forClass(UpdateDefinition.class);
+		when(mongoTemplate.findAndModify(any(Query.class), delta.capture(), any(FindAndModifyOptions.class), eq(Book.class)))
+				.thenReturn(counters("b1", 0, 0));
+
+		bookRatingService.reviewRemoved("b1", 3);
+
+		assertEquals(new Document("ratingSum", -3).append("ratingCount", -1).append("ratingHistogram.3", -1),
+				delta.getValue().getUpdateObject().get("$inc"));
+		// No reviews left, so there is no average
+		assertRatingSynced("b1", 0, 0, null);
+	}
+
+	@Test
+	void reviewChangedMovesOneReviewBetweenStarBuckets() {
+		ArgumentCaptor<UpdateDefinition> delta = ArgumentCaptor.forClass(UpdateDefinition.class);
+		when(mongoTemplate.findAndModify(any(Query.class), delta.capture(), any(FindAndModifyOptions.class), eq(Book.class)))
+				.thenReturn(counters("b1", 7, 2));
+
+		bookRatingService.reviewChanged("b1", 2, 5);
+
+		assertEquals(new Document("ratingSum", 3).append("ratingHistogram.2", -1).append("ratingHistogram.5", 1),
+				delta.getValue().getUpdateObject().get("$inc"));
+		assertRatingSynced("b1", 7, 2, 3.5);
+	}
+
+	@Test
+	void reviewChangedWithSameRatingWritesNothing() {
+		bookRatingService.reviewChanged("b1", 4, 4);
+
+		verifyNoInteractions(mongoTemplate, bookCacheService);
+	}
+
+	@Test
+	void missingBookSkipsAverageAndCache() {
+		when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+				eq(Book.class))).thenReturn(null);
+
+		bookRatingService.reviewAdded("gone", 5);
+
+		verify(mongoTemplate, never()).updateFirst(any(Query.class), any(UpdateDefinition.class), eq(Book.class));
+		verifyNoInteractions(bookCacheService);
+	}
+
+	// The average is only written while the counters still match the ones it was computed from
+	private void assertRatingSynced(String bookId, long ratingSum, long ratingCount, Double rating) {
+		ArgumentCaptor<Query> guard = ArgumentCaptor.forClass(Query.class);
+		ArgumentCaptor<UpdateDefinition> set = ArgumentCaptor.forClass(UpdateDefinition.class);
+		verify(mongoTemplate).updateFirst(guard.capture(), set.capture(), eq(Book.class));
+
+		assertEquals(new Document("book_id", bookId).append("ratingSum", ratingSum).append("ratingCount", ratingCount),
+				guard.getValue().getQueryObject());
+		assertEquals(new Document("rating", rating), set.getValue().getUpdateObject().get("$set"));
+	}
+
+	private static Book counters(String bookId, long ratingSum, long ratingCount) {
+		Book book = new Book();
+		book.setBook_id(bookId);
+		book.setRatingSum(ratingSum);
+		book.setRatingCount(ratingCount);
+		return book;
+	}
+
+}
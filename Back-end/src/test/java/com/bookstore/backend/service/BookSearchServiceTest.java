@@ -0,0 +1,120 @@
+package com.bookstore.backend.service;
+
+import com.bookstore.backend.model.Book;
+import com.bookstore.backend.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BookSearchServiceTest {
+
+	private BookRepository bookRepository;
+	private BookSearchService searchService;
+
+	@BeforeEach
+	void setUp() {
+		bookRepository = mock(BookRepository.class);
+		searchService = new BookSearchService();
+		ReflectionTestUtils.setField(searchService, "bookRepository", bookRepository);
+	}
+
+	@Test
+	void tokenizeLowercasesStripsAccentsAndSplitsOnPunctuation() {
+		assertEquals(List.of("cafe", "noir", "2nd", "edition"), BookSearchService.tokenize("Café-Noir: 2nd EDITION!"));
+		assertTrue(BookSearchService.tokenize("  ").isEmpty());
+		assertTrue(BookSearchService.tokenize(null).isEmpty());
+	}
+
+	@Test
+	void titleMatchOutranksDescriptionMatch() {
+		searchService.index(book("b1", "A Journey", "Someone", "Mentions dune once"));
+		searchService.index(book("b2", "Dune", "Frank Herbert", "Desert planet"));
+		searchService.index(book("b3", "Unrelated", "Nobody", "Nothing here"));
+
+		BookSearchService.SearchResult result = searchService.search("dune", 0, 10);
+
+		assertEquals(List.of("b2", "b1"), result.getBookIds());
+		assertEquals(2, result.getTotalHits());
+	}
+
+	@Test
+	void rarerTermsWeighMoreThanCommonOnes() {
+		searchService.index(book("b1", "Space opera", "A", null));
+		searchService.index(book("b2", "Space station", "B", null));
+		searchService.index(book("b3", "Space dust", "C", null));
+		searchService.index(book("b4", "Dust bowl", "D", null));
+
+		// "dust" appears in fewer books than "space", so the book matching both ranks first
+		// and the "dust"-only book beats the "space"-only ones
+		List<String> ranked = searchService.search("space dust", 0, 10).getBookIds();
+
+		assertEquals("b3", ranked.get(0));
+		assertEquals("b4", ranked.get(1));
+	}
+
+	@Test
+	void exactMatchOutranksPrefixMatch() {
+		searchService.index(book("b1", "Foundations of physics", "A", null));
+		searchService.index(book("b2", "Foundation", "B", null));
+
+		assertEquals(List.of("b2", "b1"), searchService.search("foundation", 0, 10).getBookIds());
+	}
+
+	@Test
+	void updateAndRemoveReplaceOldPostings() {
+		searchService.index(book("b1", "Dune", "Frank Herbert", null));
+		searchService.index(book("b1", "Emma", "Jane Austen", null));
+
+		assertTrue(searchService.search("dune", 0, 10).getBookIds().isEmpty());
+		assertEquals(List.of("b1"), searchService.search("emma", 0, 10).getBookIds());
+
+		searchService.remove("b1");
+
+		assertTrue(searchService.search("emma", 0, 10).getBookIds().isEmpty());
+	}
+
+	@Test
+	void pagesThroughResultsAndHandlesHugePageNumbers() {
+		for (int i = 0; i < 5; i++) {
+			searchService.index(book("b" + i, "Common title", "Author", null));
+		}
+
+		assertEquals(List.of("b2", "b3"), searchService.search("common", 1, 2).getBookIds());
+
+		BookSearchService.SearchResult beyond = searchService.search("common", Integer.MAX_VALUE, 50);
+		assertTrue(beyond.getBookIds().isEmpty());
+		assertEquals(5, beyond.getTotalHits());
+	}
+
+	@Test
+	void rebuildKeepsWritesMadeWhileItReadsTheCatalog() {
+		when(bookRepository.findAll()).thenAnswer(invocation -> {
+			// Arrive after findAll has read the catalog
+			searchService.index(book("b2", "Emma", "Jane Austen", null));
+			searchService.remove("b1");
+			return List.of(book("b1", "Dune", "Frank Herbert", null));
+		});
+
+		searchService.rebuild();
+
+		assertTrue(searchService.search("dune", 0, 10).getBookIds().isEmpty());
+		assertEquals(List.of("b2"), searchService.search("emma", 0, 10).getBookIds());
+	}
+
+	private static Book book(String id, String title, String author, String description) {
+		Book book = new Book();
+		book.setBook_id(id);
+		book.setTitle(title);
+		book.setAuthor(author);
+		book.setDescription(description);
+		return book;
+	}
+
+}
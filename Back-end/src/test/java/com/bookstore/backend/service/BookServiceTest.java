@@ -0,0 +1,112 @@
+package com.bookstore.backend.service;
+
+import com.bookstore.backend.dto.BookUpdateRequest;
+import com.bookstore.backend.model.Book;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BookServiceTest {
+
+	@Mock
+	private MongoTemplate mongoTemplate;
+
+	@Mock
+	private BookSearchService bookSearchService;
+
+	@Mock
+	private BookCacheService bookCacheService;
+
+	@Mock
+	private InventoryService inventoryService;
+
+	@InjectMocks
+	private BookService bookService;
+
+	@Test
+	void updateSetsOnlySuppliedFieldsAndLeavesStockAlone() {
+		ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+		Book saved = book("b1");
+		when(mongoTemplate.findAndModify(any(Query.class), update.capture(), any(FindAndModifyOptions.class),
+				eq(Book.class))).thenReturn(saved);
+
+		BookUpdateRequest request = new BookUpdateRequest();
+		request.setTitle("Dune Messiah");
+		request.setPrice(11.5);
+
+		assertSame(saved, bookService.update("b1", request));
+
+		assertEquals(new Document("title", "Dune Messiah").append("price", 11.5),
+				update.getValue().getUpdateObject().get("$set"));
+		verify(inventoryService, never()).updateStock(anyString(), anyInt());
+		verify(bookCacheService).evict("b1");
+		verify(bookSearchService).index(saved);
+	}
+
+	@Test
+	void stockChangeGoesThroughInventoryService() {
+		Book restocked = book("b1");
+		when(inventoryService.updateStock("b1", 3)).thenReturn(restocked);
+
+		BookUpdateRequest request = new BookUpdateRequest();
+		request.setStockQuantity(3);
+
+		assertSame(restocked, bookService.update("b1", request));
+
+		// InventoryService sets stockStatus and publishes the stock event; nothing else is written here
+		verify(mongoTemplate, never()).findAndModify(any(Query.class), any(UpdateDefinition.class),
+				any(FindAndModifyOptions.class), eq(Book.class));
+		verify(bookSearchService).index(restocked);
+	}
+
+	@Test
+	void updateRejectsInvalidPriceAndStock() {
+		BookUpdateRequest badPrice = new BookUpdateRequest();
+		badPrice.setPrice(0.0);
+		assertThrows(IllegalArgumentException.class, () -> bookService.update("b1", badPrice));
+
+		BookUpdateRequest badStock = new BookUpdateRequest();
+		badStock.setStockQuantity(-1);
+		assertThrows(IllegalArgumentException.class, () -> bookService.update("b1", badStock));
+
+		verifyNoInteractions(mongoTemplate, inventoryService);
+	}
+
+	@Test
+	void updateOfMissingBookFails() {
+		BookUpdateRequest request = new BookUpdateRequest();
+		request.setTitle("Anything");
+
+		assertThrows(RuntimeException.class, () -> bookService.update("missing", request));
+
+		verifyNoInteractions(inventoryService, bookSearchService);
+	}
+
+	private static Book book(String bookId) {
+		Book book = new Book();
+		book.setBook_id(bookId);
+		return book;
+	}
+
+}
@@ -0,0 +1,99 @@
+package com.bookstore.backend.service;
+
+import com.bookstore.backend.dto.ImportReport;
+import com.bookstore.backend.model.Book;
+import com.mongodb.bulk.BulkWriteResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogImportServiceTest {
+
+	@Mock
+	private MongoTemplate mongoTemplate;
+
+	@Mock
+	private BookSearchService bookSearchService;
+
+	@Mock
+	private BookCacheService bookCacheService;
+
+	@InjectMocks
+	private CatalogImportService importService;
+
+	// match filter -> threads that wrote it
+	private final Map<String, Set<String>> writersByMatch = new ConcurrentHashMap<>();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(importService, "objectMapper", JsonMapper.builder().build());
+		ReflectionTestUtils.setField(importService, "batchSize", 1);
+		ReflectionTestUtils.setField(importService, "parallelism", 4);
+
+		when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Book.class)).thenAnswer(invocation -> {
+			BulkOperations bulk = mock(BulkOperations.class);
+			when(bulk.upsert(any(Query.class), any(Update.class))).thenAnswer(upsert -> {
+				Query match = upsert.getArgument(0);
+				writersByMatch.computeIfAbsent(match.getQueryObject().toJson(), key -> ConcurrentHashMap.newKeySet())
+						.add(Thread.currentThread().getName());
+				return bulk;
+			});
+			when(bulk.execute()).thenReturn(mock(BulkWriteResult.class));
+			return bulk;
+		});
+	}
+
+	@Test
+	void rowsForTheSameBookAreAlwaysWrittenByOneWorker() {
+		StringBuilder ndjson = new StringBuilder();
+		for (int copy = 0; copy < 20; copy++) {
+			for (int book = 0; book < 8; book++) {
+				ndjson.append("{\"title\": \"Title ").append(book).append("\", \"author\": \"Author\", \"price\": 9.5}\n");
+			}
+			ndjson.append("{\"isbn\": \"978-0441013593\", \"title\": \"Dune\", \"author\": \"Frank Herbert\", \"price\": 12}\n");
+		}
+
+		ImportReport report = importService.importCatalog(body(ndjson.toString()), CatalogImportService.FORMAT_NDJSON);
+
+		assertEquals(180, report.getRowsRead());
+		assertEquals(9, writersByMatch.size());
+		writersByMatch.forEach((match, writers) -> assertEquals(1, writers.size(), match + " written by " + writers));
+	}
+
+	@Test
+	void invalidRowsAreRejectedWithTheirRowNumber() {
+		ImportReport report = importService.importCatalog(body(
+				"{\"title\": \"Dune\", \"author\": \"Frank Herbert\", \"price\": 12}\n"
+						+ "{\"title\": \"No price\", \"author\": \"Someone\"}\n"),
+				CatalogImportService.FORMAT_NDJSON);
+
+		assertEquals(1, report.getRejected());
+		assertEquals(2, report.getRejects().get(0).getRow());
+	}
+
+	private static ByteArrayInputStream body(String text) {
+		return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+	}
+
+}
@@ -0,0 +1,146 @@
+package com.bookstore.backend.service;
+
+import com.bookstore.backend.dto.CursorPage;
+import com.bookstore.backend.dto.MessageRequest;
+import com.bookstore.backend.event.ConversationUpdatedEvent;
+import com.bookstore.backend.model.Conversation;
+import com.bookstore.backend.model.MessageBucket;
+import com.bookstore.backend.repository.ConversationRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ConversationServiceTest {
+
+	@Mock
+	private ConversationRepository conversationRepository;
+
+	@Mock
+	private MongoTemplate mongoTemplate;
+
+	@Mock
+	private ApplicationEventPublisher eventPublisher;
+
+	@Mock
+	private ConversationStatsService conversationStatsService;
+
+	@InjectMocks
+	private ConversationService conversationService;
+
+	@Test
+	void addMessagePushesIntoTheBucketOfItsSeq() {
+		when(mongoTemplate.findOne(any(Query.class), eq(Conversation.class))).thenReturn(header("c1", 100));
+		Conversation afterIncrement = header("c1", 101);
+		afterIncrement.setUnreadByAdmin(1);
+		when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+				eq(Conversation.class))).thenReturn(afterIncrement);
+
+		MessageRequest request = new MessageRequest();
+		request.setContent("Where is my order?");
+		Conversation result = conversationService.addMessage("c1", request, "USER");
+
+		Conversation.Message message = result.getMessages().get(0);
+		assertEquals(100, message.getSeq());
+
+		// seq 100 is the first message of the second bucket, which the upsert creates
+		ArgumentCaptor<Query> bucketQuery = ArgumentCaptor.forClass(Query.class);
+		ArgumentCaptor<UpdateDefinition> bucketUpdate = ArgumentCaptor.forClass(UpdateDefinition.class);
+		verify(mongoTemplate).upsert(bucketQuery.capture(), bucketUpdate.capture(), eq(MessageBucket.class));
+		assertEquals(new Document("bucketId", "c1:1"), bucketQuery.getValue().getQueryObject());
+		Document update = bucketUpdate.getValue().getUpdateObject();
+		assertEquals(message, ((Document) update.get("$push")).get("messages"));
+		assertEquals(new Document("conversationId", "c1").append("bucketNo", 1L), update.get("$setOnInsert"));
+
+		verify(conversationStatsService).messageAdded("ADMIN", 1);
+		verify(eventPublisher).publishEvent(any(ConversationUpdatedEvent.class));
+	}
+
+	@Test
+	void getMessagesReadsOnlyTheBucketsThePageSpans() {
+		when(mongoTemplate.findOne(any(Query.class), eq(Conversation.class))).thenReturn(header("c1", 150));
+		ArgumentCaptor<Query> bucketQuery = ArgumentCaptor.forClass(Query.class);
+		when(mongoTemplate.find(bucketQuery.capture(), eq(MessageBucket.class)))
+				.thenReturn(List.of(bucket("c1", 1, 100, 150), bucket("c1", 0, 0, 100)));
+
+		CursorPage<Conversation.Message> page = conversationService.getMessages("c1", null, 60);
+
+		assertEquals(new Document("bucketId", new Document("$in", List.of("c1:1", "c1:0"))),
+				bucketQuery.getValue().getQueryObject());
+		assertEquals(60, page.getItems().size());
+		assertEquals(149, page.getItems().get(0).getSeq());
+		assertEquals(90, page.getItems().get(59).getSeq());
+		assertTrue(page.isHasMore());
+		assertEquals("90", page.getNextCursor());
+	}
+
+	@Test
+	void lastPageEndsAtTheFirstMessage() {
+		when(mongoTemplate.findOne(any(Query.class), eq(Conversation.class))).thenReturn(header("c1", 150));
+		when(mongoTemplate.find(any(Query.class), eq(MessageBucket.class))).thenReturn(List.of(bucket("c1", 0, 0, 100)));
+
+		CursorPage<Conversation.Message> page = conversationService.getMessages("c1", "30", 50);
+
+		assertEquals(30, page.getItems().size());
+		assertEquals(0, page.getItems().get(29).getSeq());
+		assertFalse(page.isHasMore());
+		assertNull(page.getNextCursor());
+	}
+
+	@Test
+	void getMessagesRejectsBadPageSizeAndCursor() {
+		assertThrows(IllegalArgumentException.class, () -> conversationService.getMessages("c1", null, 0));
+		assertThrows(IllegalArgumentException.class,
+				() -> conversationService.getMessages("c1", null, ConversationService.MAX_MESSAGE_PAGE_SIZE + 1));
+
+		when(mongoTemplate.findOne(any(Query.class), eq(Conversation.class))).thenReturn(header("c1", 10));
+		assertThrows(IllegalArgumentException.class, () -> conversationService.getMessages("c1", "abc", 10));
+	}
+
+	private static Conversation header(String conversationId, long messageCount) {
+		Conversation conversation = new Conversation();
+		conversation.setConversationId(conversationId);
+		conversation.setUserName("Reader");
+		conversation.setMessageCount(messageCount);
+		return conversation;
+	}
+
+	// Holds seqs from (inclusive) to to (exclusive), appended out of order the way concurrent replies can be
+	private static MessageBucket bucket(String conversationId, long bucketNo, long from, long to) {
+		List<Conversation.Message> messages = new ArrayList<>();
+		for (long seq = to - 1; seq >= from; seq--) {
+			Conversation.Message message = new Conversation.Message("USER", "Reader", "message " + seq);
+			message.setSeq(seq);
+			messages.add(message);
+		}
+		MessageBucket bucket = new MessageBucket();
+		bucket.setBucketId(MessageBucket.bucketId(conversationId, bucketNo));
+		bucket.setConversationId(conversationId);
+		bucket.setBucketNo(bucketNo);
+		bucket.setMessages(messages);
+		return bucket;
+	}
+
+}
@@ -0,0 +1,118 @@
+package com.bookstore.backend.service;
+
+import com.bookstore.backend.model.Review;
+import com.bookstore.backend.repository.ReviewRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReviewServiceTest {
+
+	@Mock
+	private ReviewRepository reviewRepository;
+
+	@Mock
+	private MongoTemplate mongoTemplate;
+
+	@Mock
+	private BookRatingService bookRatingService;
+
+	@InjectMocks
+	private ReviewService reviewService;
+
+	@Test
+	void updateMovesRatingFromTheVersionItReplaced() {
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+		when(mongoTemplate.findAndModify(query.capture(), update.capture(), eq(Review.class)))
+				.thenReturn(review("r1", "b1", "u1", 2));
+
+		Review updated = reviewService.updateReview("r1", "u1", 5, "Better on a second read");
+
+		assertEquals(5, updated.getRating());
+		verify(bookRatingService).reviewChanged("b1", 2, 5);
+
+		// Only live reviews of this user match, and the vote fields are never written
+		assertEquals(new Document("review_id", "r1").append("userId", "u1").append("isDeleted", false),
+				query.getValue().getQueryObject());
+		Document set = (Document) update.getValue().getUpdateObject().get("$set");
+		assertEquals(5, set.get("rating"));
+		assertFalse(set.containsKey("helpfulCount"));
+		assertFalse(set.containsKey("helpfulVoterIds"));
+		assertFalse(set.containsKey("isDeleted"));
+	}
+
+	@Test
+	void updateOfDeletedReviewChangesNoCounters() {
+		Review deleted = review("r1", "b1", "u1", 2);
+		deleted.setDeleted(true);
+		when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), eq(Review.class))).thenReturn(null);
+		when(reviewRepository.findById("r1")).thenReturn(Optional.of(deleted));
+
+		assertThrows(RuntimeException.class, () -> reviewService.updateReview("r1", "u1", 5, "text"));
+
+		verify(bookRatingService, never()).reviewChanged(anyString(), anyInt(), anyInt());
+	}
+
+	@Test
+	void updateRejectsOutOfRangeRating() {
+		assertThrows(IllegalArgumentException.class, () -> reviewService.updateReview("r1", "u1", 6, "text"));
+	}
+
+	@Test
+	void deleteRemovesRatingOnce() {
+		when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), eq(Review.class)))
+				.thenReturn(review("r1", "b1", "u1", 4))
+				.thenReturn(null);
+		Review deleted = review("r1", "b1", "u1", 4);
+		deleted.setDeleted(true);
+		when(reviewRepository.findById("r1")).thenReturn(Optional.of(deleted));
+
+		reviewService.deleteReview("r1", "u1", false);
+		// A second delete (or a concurrent one that lost the race) matches nothing
+		reviewService.deleteReview("r1", "u1", false);
+
+		verify(bookRatingService).reviewRemoved("b1", 4);
+	}
+
+	@Test
+	void deleteOfAnotherUsersReviewIsRejected() {
+		when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), eq(Review.class))).thenReturn(null);
+		when(reviewRepository.findById("r1")).thenReturn(Optional.of(review("r1", "b1", "owner", 4)));
+
+		assertThrows(RuntimeException.class, () -> reviewService.deleteReview("r1", "intruder", false));
+
+		verify(bookRatingService, never()).reviewRemoved(anyString(), anyInt());
+	}
+
+	private static Review review(String reviewId, String bookId, String userId, int rating) {
+		Review review = new Review();
+		review.setReview_id(reviewId);
+		review.setBook_id(bookId);
+		review.setUserId(userId);
+		review.setRating(rating);
+		return review;
+	}
+
+}
@@ -0,0 +1,225 @@
+package com.bookstore.backend.service;
+
+import com.bookstore.backend.model.Book;
+import com.bookstore.backend.model.StockReservation;
+import com.bookstore.backend.repository.StockReservationRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class StockReservationServiceTest {
+
+	@Mock
+	private StockReservationRepository reservationRepository;
+
+	@Mock
+	private InventoryService inventoryService;
+
+	@Mock
+	private MongoTemplate mongoTemplate;
+
+	@InjectMocks
+	private StockReservationService reservationService;
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(reservationService, "defaultTtlSeconds", 900);
+		ReflectionTestUtils.setField(reservationService, "maxTtlSeconds", 3600);
+		ReflectionTestUtils.setField(reservationService, "maxActivePerUser", 2);
+		ReflectionTestUtils.setField(reservationService, "maxQuantityPerUser", 5);
+	}
+
+	@Test
+	void reserveHoldsStockAndSetsExpiry() {
+		when(mongoTemplate.find(any(Query.class), eq(StockReservation.class))).thenReturn(List.of());
+		when(inventoryService.reserveStock("b1", 3)).thenReturn(new Book());
+		when(reservationRepository.save(any(StockReservation.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+		StockReservation reservation = reservationService.reserve("u1", "b1", 3, 120);
+
+		assertEquals(StockReservationService.STATUS_ACTIVE, reservation.getStatus());
+		assertEquals(3, reservation.getQuantity());
+		assertEquals(reservation.getCreatedAt().plusSeconds(120), reservation.getExpiresAt());
+	}
+
+	@Test
+	void reserveRejectsInvalidQuantityAndTtl() {
+		assertThrows(IllegalArgumentException.class, () -> reservationService.reserve("u1", "b1", 0, null));
+		assertThrows(IllegalArgumentException.class, () -> reservationService.reserve("u1", "b1", 1, 3601));
+
+		verify(inventoryService, never()).reserveStock(anyString(), anyInt());
+	}
+
+	@Test
+	void reserveRejectsQuantityOverPerUserCap() {
+		when(mongoTemplate.find(any(Query.class), eq(StockReservation.class))).thenReturn(List.of(held("b2", 4)));
+
+		assertThrows(IllegalArgumentException.class, () -> reservationService.reserve("u1", "b1", 2, null));
+
+		verify(inventoryService, never()).reserveStock(anyString(), anyInt());
+	}
+
+	@Test
+	void reserveRejectsTooManyActiveHolds() {
+		when(mongoTemplate.find(any(Query.class), eq(StockReservation.class)))
+				.thenReturn(List.of(held("b2", 1), held("b3", 1)));
+
+		assertThrows(IllegalArgumentException.class, () -> reservationService.reserve("u1", "b1", 1, null));
+
+		verify(inventoryService, never()).reserveStock(anyString(), anyInt());
+	}
+
+	@Test
+	void reserveReportsAvailableStockWhenHoldFails() {
+		when(mongoTemplate.find(any(Query.class), eq(StockReservation.class))).thenReturn(List.of());
+		when(inventoryService.reserveStock("b1", 3)).thenReturn(null);
+		Book counters = new Book();
+		counters.setStockQuantity(5);
+		counters.setReservedQuantity(4);
+		when(inventoryService.getStockCounters("b1")).thenReturn(counters);
+
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+				() -> reservationService.reserve("u1", "b1", 3, null));
+
+		assertEquals("Insufficient stock for book ID b1. Available: 1", e.getMessage());
+	}
+
+	@Test
+	void reserveBacksOutHoldWhenConcurrentRequestsPassedTheCap() {
+		StockReservation concurrent = held("b2", 3);
+		StockReservation own = held("b1", 3);
+		// Before the hold the user is within the cap; once both concurrent holds are saved they are not
+		when(mongoTemplate.find(any(Query.class), eq(StockReservation.class)))
+				.thenReturn(List.of())
+				.thenReturn(List.of(concurrent, own));
+		when(inventoryService.reserveStock("b1", 3)).thenReturn(new Book());
+		when(reservationRepository.save(any(StockReservation.class))).thenAnswer(invocation -> {
+			StockReservation saved = invocation.getArgument(0);
+			saved.setReservation_id("r1");
+			return saved;
+		});
+		when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+				eq(StockReservation.class))).thenReturn(own);
+
+		assertThrows(IllegalArgumentException.class, () -> reservationService.reserve("u1", "b1", 3, null));
+
+		verify(inventoryService).releaseReservedStock("b1", 3);
+	}
+
+	@Test
+	void commitThatCannotMoveStockHandsReservationBack() {
+		StockReservation reservation = held("b1", 2);
+		reservation.setReservation_id("r1");
+		when(reservationRepository.findById("r1")).thenReturn(Optional.of(reservation));
+		when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+				eq(StockReservation.class))).thenReturn(reservation);
+		when(inventoryService.commitReservedStock("b1", 2)).thenReturn(null);
+
+		assertThrows(IllegalStateException.class, () -> reservationService.commit("r1", "u1", "b1", 2));
+
+		assertReopened("r1");
+	}
+
+	@Test
+	void undoCommitHoldsUnitsAgainAndReopensReservation() {
+		StockReservation reservation = held("b1", 2);
+		reservation.setReservation_id("r1");
+		when(inventoryService.uncommitReservedStock("b1", 2)).thenReturn(new Book());
+		when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+				eq(StockReservation.class))).thenReturn(reservation);
+
+		reservationService.undoCommit("r1", "b1", 2);
+
+		assertReopened("r1");
+		// The units stay held for the customer rather than going back on sale
+		verify(inventoryService, never()).restoreStock(anyString(), anyInt());
+		verify(inventoryService, never()).releaseReservedStock(anyString(), anyInt());
+	}
+
+	@Test
+	void undoCommitExpiresHoldThatRanOut() {
+		StockReservation reservation = held("b1", 2);
+		reservation.setReservation_id("r1");
+		reservation.setExpiresAt(reservation.getCreatedAt().minusSeconds(1));
+		when(inventoryService.uncommitReservedStock("b1", 2)).thenReturn(new Book());
+		when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+				eq(StockReservation.class))).thenReturn(reservation);
+
+		reservationService.undoCommit("r1", "b1", 2);
+
+		verify(inventoryService).releaseReservedStock("b1", 2);
+	}
+
+	@Test
+	void commitRejectsReservationForAnotherLine() {
+		StockReservation reservation = held("b1", 2);
+		when(reservationRepository.findById("r1")).thenReturn(Optional.of(reservation));
+
+		assertThrows(IllegalArgumentException.class, () -> reservationService.commit("r1", "u1", "b1", 3));
+
+		verify(inventoryService, never()).commitReservedStock(anyString(), anyInt());
+	}
+
+	@Test
+	void expireReleasesOnlyReservationsItTransitioned() {
+		StockReservation won = held("b1", 2);
+		won.setReservation_id("r1");
+		StockReservation lost = held("b2", 1);
+		lost.setReservation_id("r2");
+		when(mongoTemplate.find(any(Query.class), eq(StockReservation.class))).thenReturn(List.of(won, lost));
+		when(mongoTemplate.findAndModify(any(Query.class), any(UpdateDefinition.class), any(FindAndModifyOptions.class),
+				eq(StockReservation.class))).thenReturn(won).thenReturn(null);
+
+		reservationService.expireReservations();
+
+		verify(inventoryService).releaseReservedStock("b1", 2);
+		verify(inventoryService, never()).releaseReservedStock(eq("b2"), anyInt());
+	}
+
+	// The last status change was COMMITTED -> ACTIVE for this reservation
+	private void assertReopened(String reservationId) {
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+		verify(mongoTemplate, atLeastOnce()).findAndModify(query.capture(), update.capture(),
+				any(FindAndModifyOptions.class), eq(StockReservation.class));
+		assertEquals(new Document("reservation_id", reservationId).append("status", StockReservationService.STATUS_COMMITTED),
+				query.getValue().getQueryObject());
+		assertEquals(new Document("status", StockReservationService.STATUS_ACTIVE),
+				update.getValue().getUpdateObject().get("$set"));
+	}
+
+	private static StockReservation held(String bookId, int quantity) {
+		StockReservation reservation = new StockReservation();
+		reservation.setUserId("u1");
+		reservation.setBookId(bookId);
+		reservation.setQuantity(quantity);
+		reservation.setExpiresAt(reservation.getCreatedAt().plusMinutes(15));
+		return reservation;
+	}
+
+}
@@ -0,0 +1,119 @@
+package com.bookstore.backend.util;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class KeysetCursorTest {
+
+	@Test
+	void roundTripsEachValueType() {
+		assertRoundTrip(12.5);
+		assertRoundTrip(42L);
+		assertRoundTrip(LocalDate.of(2024, 2, 29));
+		assertRoundTrip(LocalDateTime.of(2024, 2, 29, 13, 45, 7));
+		assertRoundTrip("Dune: Messiah");
+
+		KeysetCursor cursor = KeysetCursor.decode(KeysetCursor.encode("rating", null, "b1"), "rating");
+		assertNull(cursor.getValue());
+		assertEquals("b1", cursor.getId());
+	}
+
+	@Test
+	void integersDecodeAsLong() {
+		KeysetCursor cursor = KeysetCursor.decode(KeysetCursor.encode("stock", 7, "b1"), "stock");
+		assertEquals(7L, cursor.getValue());
+	}
+
+	@Test
+	void rejectsCursorForAnotherSort() {
+		String token = KeysetCursor.encode("price", 10.0, "b1");
+		assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(token, "rating"));
+	}
+
+	@Test
+	void rejectsMalformedTokens() {
+		assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("%%%", "price"));
+		assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(encodeRaw("price\u0000d:10.0"), "price"));
+		assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(encodeRaw("price\u0000d:abc\u0000b1"), "price"));
+		assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(encodeRaw("price\u0000x:1\u0000b1"), "price"));
+		assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(encodeRaw("price\u0000d:10.0\u0000"), "price"));
+	}
+
+	@Test
+	void ascendingAfterTakesLargerValuesOrSameValueWithLargerId() {
+		KeysetCursor cursor = KeysetCursor.decode(KeysetCursor.encode("price", 10.0, "b5"), "price");
+
+		Document criteria = cursor.after("price", "_id", Sort.Direction.ASC).getCriteriaObject();
+
+		assertEquals(List.of(
+				new Document("price", new Document("$gt", 10.0)),
+				new Document("$and", List.of(new Document("price", 10.0), new Document("_id", new Document("$gt", "b5"))))),
+				criteria.get("$or"));
+	}
+
+	@Test
+	void descendingAfterAlsoIncludesNullsWhichSortLast() {
+		KeysetCursor cursor = KeysetCursor.decode(KeysetCursor.encode("price", 10.0, "b5"), "price");
+
+		Document criteria = cursor.after("price", "_id", Sort.Direction.DESC).getCriteriaObject();
+
+		assertEquals(List.of(
+				new Document("price", new Document("$lt", 10.0)),
+				new Document("$and", List.of(new Document("price", 10.0), new Document("_id", new Document("$lt", "b5")))),
+				new Document("price", null)),
+				criteria.get("$or"));
+	}
+
+	@Test
+	void nullCursorValueAscendingContinuesIntoNonNullValues() {
+		KeysetCursor cursor = KeysetCursor.decode(KeysetCursor.encode("price", null, "b5"), "price");
+
+		Document criteria = cursor.after("price", "_id", Sort.Direction.ASC).getCriteriaObject();
+
+		assertEquals(List.of(
+				new Document("$and", List.of(new Document("price", null), new Document("_id", new Document("$gt", "b5")))),
+				new Document("price", new Document("$ne", null))),
+				criteria.get("$or"));
+	}
+
+	@Test
+	void nullCursorValueDescendingStaysWithinNulls() {
+		KeysetCursor cursor = KeysetCursor.decode(KeysetCursor.encode("price", null, "b5"), "price");
+
+		Document criteria = cursor.after("price", "_id", Sort.Direction.DESC).getCriteriaObject();
+
+		assertEquals(List.of(new Document("price", null), new Document("_id", new Document("$lt", "b5"))),
+				criteria.get("$and"));
+	}
+
+	@Test
+	void idSortComparesIdOnly() {
+		KeysetCursor cursor = KeysetCursor.decode(KeysetCursor.encode("_id", "b5", "b5"), "_id");
+
+		assertEquals(new Document("_id", new Document("$gt", "b5")),
+				cursor.after("_id", "_id", Sort.Direction.ASC).getCriteriaObject());
+	}
+
+	private static void assertRoundTrip(Object value) {
+		KeysetCursor cursor = KeysetCursor.decode(KeysetCursor.encode("key", value, "id-1"), "key");
+		assertEquals("key", cursor.getSortKey());
+		assertEquals(value, cursor.getValue());
+		assertEquals("id-1", cursor.getId());
+	}
+
+	private static String encodeRaw(String raw) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+}